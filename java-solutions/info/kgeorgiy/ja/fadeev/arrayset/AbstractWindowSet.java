@@ -0,0 +1,216 @@
+package info.kgeorgiy.ja.fadeev.arrayset;
+
+import java.util.*;
+
+/**
+ * Navigable set over sorted indexed storage: a set is the window {@code [from, to)} of the storage,
+ * iterated in ascending or descending order, and views are windows of the same storage.
+ * Subclasses provide the search, the element at an index and the construction of windows,
+ * which are made by {@link #window} and returned by views as {@code S}.
+ */
+abstract class AbstractWindowSet<E, S extends AbstractWindowSet<E, S>> extends AbstractSet<E> implements NavigableSet<E> {
+    final int from;
+    final int to;
+    final boolean descending;
+
+    AbstractWindowSet(int from, int to, boolean descending) {
+        this.from = from;
+        this.to = to;
+        this.descending = descending;
+    }
+
+    // Same contract as Arrays.binarySearch over [from, to) of the ascending storage
+    abstract int search(E e);
+
+    abstract E get(int i);
+
+    // Set of the same storage on [fromIndex, toIndex), empty if toIndex is less than fromIndex
+    abstract S window(int fromIndex, int toIndex, boolean descending);
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private int i = descending ? to - 1 : from;
+
+            @Override
+            public boolean hasNext() {
+                return descending ? i >= from : i < to;
+            }
+
+            @Override
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return descending ? get(i--) : get(i++);
+            }
+        };
+    }
+
+    @Override
+    public Iterator<E> descendingIterator() {
+        return descendingSet().iterator();
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o) {
+        try {
+            return search((E) o) >= 0;
+        } catch (ClassCastException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public S descendingSet() {
+        return window(from, to, !descending);
+    }
+
+    @Override
+    public E lower(E e) {
+        return at(indexOfLower(e));
+    }
+
+    @Override
+    public E floor(E e) {
+        return at(indexOfFloor(e));
+    }
+
+    @Override
+    public E ceiling(E e) {
+        return at(indexOfCeiling(e));
+    }
+
+    @Override
+    public E higher(E e) {
+        return at(indexOfHigher(e));
+    }
+
+    @Override
+    public E pollFirst() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public E pollLast() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public S subSet(E from, boolean fromInclusive, E to, boolean toInclusive) {
+        if (compare(from, to) > 0) {
+            throw new IllegalArgumentException();
+        }
+        if (descending) {
+            return window(lowBound(to, toInclusive), highBound(from, fromInclusive), true);
+        }
+        return window(lowBound(from, fromInclusive), highBound(to, toInclusive), false);
+    }
+
+    @Override
+    public S headSet(E to, boolean inclusive) {
+        return descending
+                ? window(lowBound(to, inclusive), this.to, true)
+                : window(from, highBound(to, inclusive), false);
+    }
+
+    @Override
+    public S tailSet(E from, boolean inclusive) {
+        return descending
+                ? window(this.from, highBound(from, inclusive), true)
+                : window(lowBound(from, inclusive), to, false);
+    }
+
+    @Override
+    public S subSet(E from, E to) {
+        return subSet(from, true, to, false);
+    }
+
+    @Override
+    public S headSet(E to) {
+        return headSet(to, false);
+    }
+
+    @Override
+    public S tailSet(E from) {
+        return tailSet(from, true);
+    }
+
+    @Override
+    public E first() {
+        if (isEmpty())
+            throw new NoSuchElementException();
+        return get(descending ? to - 1 : from);
+    }
+
+    @Override
+    public E last() {
+        if (isEmpty())
+            throw new NoSuchElementException();
+        return get(descending ? from : to - 1);
+    }
+
+    // Compares in iteration order
+    @SuppressWarnings("unchecked")
+    private int compare(E e1, E e2) {
+        Comparator<? super E> comparator = comparator();
+        return comparator == null ? ((Comparable<? super E>) e1).compareTo(e2) : comparator.compare(e1, e2);
+    }
+
+    // Methods below work with indices in the storage, which ArrayMap shares, -1 stands for no element
+
+    E at(int i) {
+        return i < 0 ? null : get(i);
+    }
+
+    int indexOfLower(E e) {
+        return checked(descending ? higherIndex(e) : ceilingIndex(e) - 1);
+    }
+
+    int indexOfFloor(E e) {
+        return checked(descending ? ceilingIndex(e) : higherIndex(e) - 1);
+    }
+
+    int indexOfCeiling(E e) {
+        return checked(descending ? higherIndex(e) - 1 : ceilingIndex(e));
+    }
+
+    int indexOfHigher(E e) {
+        return checked(descending ? ceilingIndex(e) - 1 : higherIndex(e));
+    }
+
+    // Index of the element at given position in iteration order
+    int indexAt(int position) {
+        return checked(descending ? to - 1 - position : from + position);
+    }
+
+    private int checked(int i) {
+        return from <= i && i < to ? i : -1;
+    }
+
+    // First index of ascending elements that are not less (inclusive) or greater (exclusive) than e
+    private int lowBound(E e, boolean inclusive) {
+        return inclusive ? ceilingIndex(e) : higherIndex(e);
+    }
+
+    // End index of ascending elements that are not greater (inclusive) or less (exclusive) than e
+    private int highBound(E e, boolean inclusive) {
+        return inclusive ? higherIndex(e) : ceilingIndex(e);
+    }
+
+    int ceilingIndex(E e) {
+        int i = search(e);
+        return i < 0 ? -i - 1 : i;
+    }
+
+    int higherIndex(E e) {
+        int i = search(e);
+        return i < 0 ? -i - 1 : i + 1;
+    }
+}
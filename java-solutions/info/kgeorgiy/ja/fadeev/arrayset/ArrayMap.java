@@ -0,0 +1,247 @@
+package info.kgeorgiy.ja.fadeev.arrayset;
+
+import java.util.*;
+
+/**
+ * Immutable navigable map on sorted parallel arrays of keys and values.
+ * Keys are an {@link ArraySet}, which does all the searches and views, and
+ * a key at index {@code i} of its backing array maps to {@code values[i]}.
+ * Sub-maps and descending maps are views sharing both arrays.
+ */
+public class ArrayMap<K, V> extends AbstractMap<K, V> implements NavigableMap<K, V> {
+    private final ArraySet<K> keys;
+    private final V[] values;
+
+    public ArrayMap() {
+        this(Collections.emptyMap(), null);
+    }
+
+    public ArrayMap(Map<? extends K, ? extends V> map) {
+        this(map, null);
+    }
+
+    public ArrayMap(Comparator<? super K> comparator) {
+        this(Collections.emptyMap(), comparator);
+    }
+
+    // Equal keys are merged as TreeMap.putAll does: the first key stays with the last value
+    @SuppressWarnings("unchecked")
+    public ArrayMap(Map<? extends K, ? extends V> map, Comparator<? super K> comparator) {
+        Comparator<? super K> order = comparator == null ? ArraySet.naturalOrder() : comparator;
+        List<Map.Entry<? extends K, ? extends V>> entries = new ArrayList<>(map.entrySet());
+        if (entries.size() == 1) {
+            // Rejects nulls and incomparable keys as TreeMap.put does
+            order.compare(entries.get(0).getKey(), entries.get(0).getKey());
+        }
+        entries.sort((e1, e2) -> order.compare(e1.getKey(), e2.getKey()));
+        K[] sortedKeys = (K[]) new Object[entries.size()];
+        V[] sortedValues = (V[]) new Object[entries.size()];
+        int size = 0;
+        for (Map.Entry<? extends K, ? extends V> entry : entries) {
+            if (size > 0 && order.compare(sortedKeys[size - 1], entry.getKey()) == 0) {
+                sortedValues[size - 1] = entry.getValue();
+            } else {
+                sortedKeys[size] = entry.getKey();
+                sortedValues[size++] = entry.getValue();
+            }
+        }
+        this.keys = ArraySet.ofSorted(Arrays.copyOf(sortedKeys, size), comparator);
+        this.values = Arrays.copyOf(sortedValues, size);
+    }
+
+    private ArrayMap(ArraySet<K> keys, V[] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    @Override
+    public int size() {
+        return keys.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return keys.indexOf(key) >= 0;
+    }
+
+    @Override
+    public V get(Object key) {
+        int i = keys.indexOf(key);
+        return i < 0 ? null : values[i];
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new Iterator<>() {
+                    private int position = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return position < keys.size();
+                    }
+
+                    @Override
+                    public Map.Entry<K, V> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return entry(keys.indexAt(position++));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys.size();
+            }
+        };
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractList<>() {
+            @Override
+            public V get(int index) {
+                Objects.checkIndex(index, keys.size());
+                return values[keys.indexAt(index)];
+            }
+
+            @Override
+            public int size() {
+                return keys.size();
+            }
+        };
+    }
+
+    @Override
+    public ArraySet<K> keySet() {
+        return keys;
+    }
+
+    @Override
+    public ArraySet<K> navigableKeySet() {
+        return keys;
+    }
+
+    @Override
+    public ArraySet<K> descendingKeySet() {
+        return keys.descendingSet();
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+        return keys.comparator();
+    }
+
+    @Override
+    public Map.Entry<K, V> lowerEntry(K key) {
+        return entry(keys.indexOfLower(key));
+    }
+
+    @Override
+    public K lowerKey(K key) {
+        return keys.lower(key);
+    }
+
+    @Override
+    public Map.Entry<K, V> floorEntry(K key) {
+        return entry(keys.indexOfFloor(key));
+    }
+
+    @Override
+    public K floorKey(K key) {
+        return keys.floor(key);
+    }
+
+    @Override
+    public Map.Entry<K, V> ceilingEntry(K key) {
+        return entry(keys.indexOfCeiling(key));
+    }
+
+    @Override
+    public K ceilingKey(K key) {
+        return keys.ceiling(key);
+    }
+
+    @Override
+    public Map.Entry<K, V> higherEntry(K key) {
+        return entry(keys.indexOfHigher(key));
+    }
+
+    @Override
+    public K higherKey(K key) {
+        return keys.higher(key);
+    }
+
+    @Override
+    public Map.Entry<K, V> firstEntry() {
+        return entry(keys.indexAt(0));
+    }
+
+    @Override
+    public Map.Entry<K, V> lastEntry() {
+        return entry(keys.indexAt(keys.size() - 1));
+    }
+
+    @Override
+    public K firstKey() {
+        return keys.first();
+    }
+
+    @Override
+    public K lastKey() {
+        return keys.last();
+    }
+
+    @Override
+    public Map.Entry<K, V> pollFirstEntry() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map.Entry<K, V> pollLastEntry() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ArrayMap<K, V> descendingMap() {
+        return new ArrayMap<>(keys.descendingSet(), values);
+    }
+
+    @Override
+    public ArrayMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+        return new ArrayMap<>(keys.subSet(fromKey, fromInclusive, toKey, toInclusive), values);
+    }
+
+    @Override
+    public ArrayMap<K, V> headMap(K toKey, boolean inclusive) {
+        return new ArrayMap<>(keys.headSet(toKey, inclusive), values);
+    }
+
+    @Override
+    public ArrayMap<K, V> tailMap(K fromKey, boolean inclusive) {
+        return new ArrayMap<>(keys.tailSet(fromKey, inclusive), values);
+    }
+
+    @Override
+    public ArrayMap<K, V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    @Override
+    public ArrayMap<K, V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    @Override
+    public ArrayMap<K, V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    private Map.Entry<K, V> entry(int i) {
+        return i < 0 ? null : new AbstractMap.SimpleImmutableEntry<>(keys.at(i), values[i]);
+    }
+}
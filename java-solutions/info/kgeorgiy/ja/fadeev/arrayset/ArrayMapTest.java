@@ -0,0 +1,110 @@
+package info.kgeorgiy.ja.fadeev.arrayset;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.*;
+
+@RunWith(JUnit4.class)
+public class ArrayMapTest {
+    private static final int MAX_KEY = 20;
+    private static final Random random = new Random(8723458723L);
+
+    @Test
+    public void navigationTest() {
+        for (int i = 0; i < 2000; i++) {
+            final Comparator<Integer> comparator = ArraySetTest.randomComparator();
+            final Map<Integer, String> source = new LinkedHashMap<>();
+            for (final Integer key : ArraySetTest.randomValues(random.nextInt(30), MAX_KEY)) {
+                source.put(key, "v" + random.nextInt(100));
+            }
+            final TreeMap<Integer, String> expected = new TreeMap<>(comparator);
+            expected.putAll(source);
+            checkViews(new ArrayMap<>(source, comparator), expected, 5);
+        }
+    }
+
+    @Test
+    public void equalKeysTest() {
+        // Keys equal by comparator are merged as TreeMap.putAll does
+        final Comparator<String> order = String.CASE_INSENSITIVE_ORDER;
+        final Map<String, Integer> source = new LinkedHashMap<>();
+        source.put("b", 1);
+        source.put("A", 2);
+        source.put("a", 3);
+        source.put("B", 4);
+        final TreeMap<String, Integer> expected = new TreeMap<>(order);
+        expected.putAll(source);
+        final ArrayMap<String, Integer> map = new ArrayMap<>(source, order);
+        Assert.assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(map.entrySet()));
+        Assert.assertEquals(expected.firstKey(), map.firstKey());
+    }
+
+    @Test
+    public void emptyTest() {
+        final ArrayMap<Integer, String> map = new ArrayMap<>();
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertNull(map.firstEntry());
+        Assert.assertNull(map.floorEntry(0));
+        Assert.assertNull(map.get(0));
+        Assert.assertNull(map.get("string"));
+        ArraySetTest.assertThrows(NoSuchElementException.class, map::firstKey);
+        ArraySetTest.assertThrows(UnsupportedOperationException.class, () -> map.put(1, "1"));
+        ArraySetTest.assertThrows(UnsupportedOperationException.class, map::pollFirstEntry);
+    }
+
+    // Compares map with expected one, then some random view of it with the same view of expected
+    private static void checkViews(final NavigableMap<Integer, String> map, final NavigableMap<Integer, String> expected,
+                                   final int depth) {
+        checkMap(map, expected);
+        if (depth == 0 || expected.isEmpty()) {
+            return;
+        }
+        final List<Integer> keys = new ArrayList<>(expected.keySet());
+        final Integer from = keys.get(random.nextInt(keys.size()));
+        final Integer to = keys.get(random.nextInt(keys.size()));
+        final boolean ordered = expected.comparator() == null ? from <= to : expected.comparator().compare(from, to) <= 0;
+        final Integer low = ordered ? from : to;
+        final Integer high = ordered ? to : from;
+        final boolean lowInclusive = random.nextBoolean();
+        final boolean highInclusive = random.nextBoolean();
+        switch (random.nextInt(4)) {
+            case 0:
+                checkViews(map.descendingMap(), expected.descendingMap(), depth - 1);
+                break;
+            case 1:
+                checkViews(map.subMap(low, lowInclusive, high, highInclusive),
+                        expected.subMap(low, lowInclusive, high, highInclusive), depth - 1);
+                break;
+            case 2:
+                checkViews(map.headMap(high, highInclusive), expected.headMap(high, highInclusive), depth - 1);
+                break;
+            default:
+                checkViews(map.tailMap(low, lowInclusive), expected.tailMap(low, lowInclusive), depth - 1);
+                break;
+        }
+    }
+
+    private static void checkMap(final NavigableMap<Integer, String> map, final NavigableMap<Integer, String> expected) {
+        Assert.assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(map.entrySet()));
+        Assert.assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(map.values()));
+        Assert.assertEquals(new ArrayList<>(expected.descendingKeySet()), new ArrayList<>(map.descendingKeySet()));
+        Assert.assertEquals(expected, map);
+        Assert.assertEquals(expected.hashCode(), map.hashCode());
+        Assert.assertEquals(expected.firstEntry(), map.firstEntry());
+        Assert.assertEquals(expected.lastEntry(), map.lastEntry());
+        for (int key = -MAX_KEY - 2; key <= MAX_KEY + 2; key++) {
+            final String message = "key " + key + " of " + expected;
+            Assert.assertEquals(message, expected.get(key), map.get(key));
+            Assert.assertEquals(message, expected.containsKey(key), map.containsKey(key));
+            Assert.assertEquals(message, expected.lowerEntry(key), map.lowerEntry(key));
+            Assert.assertEquals(message, expected.floorEntry(key), map.floorEntry(key));
+            Assert.assertEquals(message, expected.ceilingEntry(key), map.ceilingEntry(key));
+            Assert.assertEquals(message, expected.higherEntry(key), map.higherEntry(key));
+            Assert.assertEquals(message, expected.lowerKey(key), map.lowerKey(key));
+            Assert.assertEquals(message, expected.higherKey(key), map.higherKey(key));
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package info.kgeorgiy.ja.fadeev.arrayset;
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collector;
 
-public class ArraySet<E> extends AbstractSet<E> implements SortedSet<E> {
-    private final List<E> list;
+public class ArraySet<E> extends AbstractWindowSet<E, ArraySet<E>> {
+    // Sorted by comparator, views are windows [from, to) of the same array
+    private final E[] elements;
     private final Comparator<? super E> comparator;
     private final boolean isComparatorNull;
+    // Optional search index over the whole array, shared by views
+    private final EytzingerIndex<E> index;
 
     public ArraySet() {
         this(Collections.emptyList(), null);
@@ -19,106 +24,400 @@ public class ArraySet<E> extends AbstractSet<E> implements SortedSet<E> {
         this(Collections.emptyList(), comparator);
     }
 
-    @SuppressWarnings("unchecked")
+    // O(n) if collection is already sorted by comparator, O(n log n) otherwise
     public ArraySet(Collection<? extends E> collection, Comparator<? super E> comparator) {
-        SortedSet<E> sortedSet = new TreeSet<>(comparator);
-        sortedSet.addAll(collection);
-        list = List.copyOf(sortedSet);
-        if (comparator == null) {
-            isComparatorNull = true;
-            //TreeMap getComparator()
-            this.comparator = (((e1, e2) -> {
-                Comparable<? super E> e = (Comparable<? super E>) e1;
-                return e.compareTo(e2);
-            }));
-        } else {
-            isComparatorNull = false;
-            this.comparator = comparator;
+        this(sortedUnique(collection, comparator == null ? naturalOrder() : comparator), comparator);
+    }
+
+    // Wraps array already sorted by comparator without duplicates, null comparator means natural order
+    private ArraySet(E[] sorted, Comparator<? super E> comparator) {
+        this(sorted, 0, sorted.length, comparator == null ? naturalOrder() : comparator, comparator == null, false, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <E> Comparator<? super E> naturalOrder() {
+        //TreeMap getComparator()
+        return (e1, e2) -> {
+            Comparable<? super E> e = (Comparable<? super E>) e1;
+            return e.compareTo(e2);
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> E[] sortedUnique(Collection<? extends E> collection, Comparator<? super E> comparator) {
+        E[] array = (E[]) collection.toArray();
+        return sortedUnique(array, array.length, comparator);
+    }
+
+    // Sorts and deduplicates first size elements, keeping the first of equal ones like TreeSet does
+    private static <E> E[] sortedUnique(E[] array, int size, Comparator<? super E> comparator) {
+        if (size == 1) {
+            // Rejects nulls and incomparable elements as TreeMap.put does
+            comparator.compare(array[0], array[0]);
         }
+        int i = 1;
+        while (i < size && comparator.compare(array[i - 1], array[i]) < 0) {
+            i++;
+        }
+        if (i < size) {
+            Arrays.sort(array, 0, size, comparator);
+            int unique = 1;
+            for (i = 1; i < size; i++) {
+                if (comparator.compare(array[unique - 1], array[i]) != 0) {
+                    array[unique++] = array[i];
+                }
+            }
+            size = unique;
+        }
+        return size == array.length ? array : Arrays.copyOf(array, size);
     }
 
-    private ArraySet(List<E> sortedArray, Comparator<? super E> comparator, boolean isComparatorNull) {
-        this.isComparatorNull = isComparatorNull;
-        this.list = sortedArray;
+    private ArraySet(E[] elements, int from, int to, Comparator<? super E> comparator, boolean isComparatorNull,
+                     boolean descending, EytzingerIndex<E> index) {
+        super(from, to, descending);
+        this.elements = elements;
         this.comparator = comparator;
+        this.isComparatorNull = isComparatorNull;
+        this.index = index;
+    }
+
+    static <E> ArraySet<E> ofSorted(E[] sorted, Comparator<? super E> comparator) {
+        return new ArraySet<>(sorted, comparator);
+    }
+
+    @Override
+    ArraySet<E> window(int fromIndex, int toIndex, boolean descending) {
+        return new ArraySet<>(elements, fromIndex, Math.max(fromIndex, toIndex), comparator, isComparatorNull, descending, index);
+    }
+
+    /**
+     * Returns the same set backed by an Eytzinger-ordered search index, which makes lookups
+     * in large sets faster at the cost of another array of references and ints.
+     * Views of the returned set share the index. Order and semantics are unchanged.
+     */
+    public ArraySet<E> withSearchIndex() {
+        if (index != null) {
+            return this;
+        }
+        return new ArraySet<>(elements, from, to, comparator, isComparatorNull, descending, new EytzingerIndex<>(elements));
     }
 
     @Override
-    public Iterator<E> iterator() {
-        return list.iterator();
+    public Spliterator<E> spliterator() {
+        return new WindowSpliterator(from, to);
+    }
+
+    // Splits window [lo, hi) in halves by index, the prefix goes first in iteration order
+    private final class WindowSpliterator implements Spliterator<E> {
+        private int lo;
+        private int hi;
+
+        WindowSpliterator(int lo, int hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            if (lo >= hi) {
+                return false;
+            }
+            action.accept(descending ? elements[--hi] : elements[lo++]);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            if (descending) {
+                for (int i = hi - 1; i >= lo; i--) {
+                    action.accept(elements[i]);
+                }
+            } else {
+                for (int i = lo; i < hi; i++) {
+                    action.accept(elements[i]);
+                }
+            }
+            lo = hi;
+        }
+
+        @Override
+        public Spliterator<E> trySplit() {
+            int mid = (lo + hi) >>> 1;
+            if (mid == lo) {
+                return null;
+            }
+            if (descending) {
+                WindowSpliterator prefix = new WindowSpliterator(mid, hi);
+                hi = mid;
+                return prefix;
+            }
+            WindowSpliterator prefix = new WindowSpliterator(lo, mid);
+            lo = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return hi - lo;
+        }
+
+        @Override
+        public int characteristics() {
+            return SIZED | SUBSIZED | SORTED | DISTINCT | ORDERED | IMMUTABLE;
+        }
+
+        @Override
+        public Comparator<? super E> getComparator() {
+            return comparator();
+        }
     }
 
     @Override
-    public int size() {
-        return list.size();
+    public Object[] toArray() {
+        Object[] array = Arrays.copyOfRange(elements, from, to, Object[].class);
+        if (descending) {
+            Collections.reverse(Arrays.asList(array));
+        }
+        return array;
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public boolean contains(Object o) {
-        try {
-            return findIndex((E) o) >= 0;
-        } catch (ClassCastException e) {
-            return false;
-        }
+        return indexOf(o) >= 0;
     }
 
     @Override
     public Comparator<? super E> comparator() {
+        if (descending) {
+            return isComparatorNull ? Collections.reverseOrder() : Collections.reverseOrder(comparator);
+        }
         return isComparatorNull ? null : comparator;
     }
 
     @Override
-    public SortedSet<E> subSet(E from, E to) {
-        return subSet(from, to, -1, -1);
+    E get(int i) {
+        return elements[i];
     }
 
-    // :NOTE: rewrite conditions
-    private ArraySet<E> subSet(E from, E to, int iFrom, int iTo) {
-        if (iFrom == -1 && iTo == -1 && comparator.compare(from, to) > 0) {
-            throw new IllegalArgumentException();
+    // Index in the backing array, which ArrayMap shares, or -1 if there is no such element
+    @SuppressWarnings("unchecked")
+    int indexOf(Object o) {
+        try {
+            E e = (E) o;
+            if (index != null) {
+                int i = ceilingIndex(e);
+                return i < to && comparator.compare(elements[i], e) == 0 ? i : -1;
+            }
+            return Math.max(search(e), -1);
+        } catch (ClassCastException e) {
+            return -1;
         }
-        int fromIndex = iFrom == -1 ? findRealIndex(from) : iFrom;
-        int toIndex = iTo == -1 ? findRealIndex(to) : iTo;
-        return new ArraySet<>(list.subList(fromIndex, toIndex), comparator, isComparatorNull);
     }
 
     @Override
-    public SortedSet<E> headSet(E to) {
-        if (isEmpty())
-            return new ArraySet<>(comparator);
-        return subSet(first(), to, 0, -1);
+    int search(final E e) {
+        return Arrays.binarySearch(elements, from, to, e, comparator);
     }
 
     @Override
-    public SortedSet<E> tailSet(E from) {
-        if (isEmpty())
-            return new ArraySet<>(comparator);
-        return subSet(from, last(), -1, size());
+    int ceilingIndex(final E e) {
+        return index != null ? indexBound(e, true) : super.ceilingIndex(e);
     }
 
     @Override
-    public E first() {
-        if (isEmpty())
-            throw new NoSuchElementException();
-        return list.get(0);
+    int higherIndex(final E e) {
+        return index != null ? indexBound(e, false) : super.higherIndex(e);
     }
 
-    @Override
-    public E last() {
-        if (isEmpty())
-            throw new NoSuchElementException();
-        return list.get(list.size() - 1);
+    // Set algebra: linear merges of the backing arrays, galloping over long runs of one side,
+    // so very unbalanced inputs cost O(m log(n / m)) comparisons. Results keep comparator and direction of this set.
+
+    public ArraySet<E> union(ArraySet<E> other) {
+        ArraySet<E> b = compatible(other);
+        E[] out = newArray(size() + b.size());
+        int n = 0, i = from, j = b.from;
+        while (i < to && j < b.to) {
+            int c = comparator.compare(elements[i], b.elements[j]);
+            if (c < 0) {
+                int k = gallop(elements, i + 1, to, b.elements[j]);
+                n = copy(elements, i, k, out, n);
+                i = k;
+            } else if (c > 0) {
+                int k = gallop(b.elements, j + 1, b.to, elements[i]);
+                n = copy(b.elements, j, k, out, n);
+                j = k;
+            } else {
+                out[n++] = elements[i++];
+                j++;
+            }
+        }
+        n = copy(elements, i, to, out, n);
+        n = copy(b.elements, j, b.to, out, n);
+        return result(out, n);
     }
 
-    private int findIndex(final E e) {
-        return Collections.binarySearch(list, e, comparator);
+    public ArraySet<E> intersection(ArraySet<E> other) {
+        ArraySet<E> b = compatible(other);
+        E[] out = newArray(Math.min(size(), b.size()));
+        int n = 0, i = from, j = b.from;
+        while (i < to && j < b.to) {
+            int c = comparator.compare(elements[i], b.elements[j]);
+            if (c < 0) {
+                i = gallop(elements, i + 1, to, b.elements[j]);
+            } else if (c > 0) {
+                j = gallop(b.elements, j + 1, b.to, elements[i]);
+            } else {
+                out[n++] = elements[i++];
+                j++;
+            }
+        }
+        return result(out, n);
+    }
+
+    public ArraySet<E> difference(ArraySet<E> other) {
+        ArraySet<E> b = compatible(other);
+        E[] out = newArray(size());
+        int n = 0, i = from, j = b.from;
+        while (i < to && j < b.to) {
+            int c = comparator.compare(elements[i], b.elements[j]);
+            if (c < 0) {
+                int k = gallop(elements, i + 1, to, b.elements[j]);
+                n = copy(elements, i, k, out, n);
+                i = k;
+            } else if (c > 0) {
+                j = gallop(b.elements, j + 1, b.to, elements[i]);
+            } else {
+                i++;
+                j++;
+            }
+        }
+        n = copy(elements, i, to, out, n);
+        return result(out, n);
     }
 
-    private int findRealIndex(final E e) {
-        int i = findIndex(e);
-        if (i < 0)
-            i = -i - 1;
-        return i;
+    public ArraySet<E> symmetricDifference(ArraySet<E> other) {
+        ArraySet<E> b = compatible(other);
+        E[] out = newArray(size() + b.size());
+        int n = 0, i = from, j = b.from;
+        while (i < to && j < b.to) {
+            int c = comparator.compare(elements[i], b.elements[j]);
+            if (c < 0) {
+                int k = gallop(elements, i + 1, to, b.elements[j]);
+                n = copy(elements, i, k, out, n);
+                i = k;
+            } else if (c > 0) {
+                int k = gallop(b.elements, j + 1, b.to, elements[i]);
+                n = copy(b.elements, j, k, out, n);
+                j = k;
+            } else {
+                i++;
+                j++;
+            }
+        }
+        n = copy(elements, i, to, out, n);
+        n = copy(b.elements, j, b.to, out, n);
+        return result(out, n);
+    }
+
+    // Returns other if its array is ordered the same way as ours, otherwise its copy with our comparator
+    private ArraySet<E> compatible(ArraySet<E> other) {
+        boolean same = isComparatorNull ? other.isComparatorNull : !other.isComparatorNull && comparator.equals(other.comparator);
+        return same ? other : new ArraySet<>(other, comparator);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> E[] newArray(int size) {
+        return (E[]) new Object[size];
+    }
+
+    private static <E> int copy(E[] source, int fromIndex, int toIndex, E[] target, int n) {
+        System.arraycopy(source, fromIndex, target, n, toIndex - fromIndex);
+        return n + toIndex - fromIndex;
+    }
+
+    private ArraySet<E> result(E[] out, int n) {
+        return new ArraySet<>(n == out.length ? out : Arrays.copyOf(out, n), 0, n, comparator, isComparatorNull, descending, null);
+    }
+
+    // First index in [lo, hi) of array element not less than key: exponential probes from lo, then binary search
+    private int gallop(E[] array, int lo, int hi, E key) {
+        if (lo >= hi || comparator.compare(array[lo], key) >= 0) {
+            return lo;
+        }
+        int last = lo;
+        int offset = 1;
+        while (last + offset < hi && comparator.compare(array[last + offset], key) < 0) {
+            last += offset;
+            offset <<= 1;
+        }
+        int i = Arrays.binarySearch(array, last + 1, Math.min(hi, last + offset), key, comparator);
+        return i < 0 ? -i - 1 : i;
+    }
+
+    // Bounds over the whole array clamped to the window, as windows are ranges of it
+    private int indexBound(E e, boolean inclusive) {
+        return Math.min(Math.max(index.bound(e, inclusive, comparator), from), to);
+    }
+
+    public static <E> Builder<E> builder() {
+        return new Builder<>(null);
+    }
+
+    public static <E> Builder<E> builder(Comparator<? super E> comparator) {
+        return new Builder<>(comparator);
+    }
+
+    public static <E> Collector<E, ?, ArraySet<E>> toArraySet(Comparator<? super E> comparator) {
+        return Collector.of(() -> new Builder<E>(comparator), Builder::add, Builder::addAll, Builder::build);
+    }
+
+    /**
+     * Accumulates elements into an array and sorts it once on {@link #build()}.
+     * Sorting is skipped if elements were added in increasing order.
+     * Built sets share the array, so the builder copies it on the next addition.
+     */
+    public static final class Builder<E> {
+        private final Comparator<? super E> comparator;
+        private final Comparator<? super E> order;
+        private E[] elements;
+        private int size;
+
+        @SuppressWarnings("unchecked")
+        private Builder(Comparator<? super E> comparator) {
+            this.comparator = comparator;
+            this.order = comparator == null ? naturalOrder() : comparator;
+            this.elements = (E[]) new Object[16];
+        }
+
+        public Builder<E> add(E e) {
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, Math.max(16, size * 2));
+            }
+            elements[size++] = e;
+            return this;
+        }
+
+        public Builder<E> addAll(Iterable<? extends E> iterable) {
+            for (E e : iterable) {
+                add(e);
+            }
+            return this;
+        }
+
+        private Builder<E> addAll(Builder<E> other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.elements[i]);
+            }
+            return this;
+        }
+
+        public ArraySet<E> build() {
+            E[] array = sortedUnique(elements, size, order);
+            elements = array;
+            size = array.length;
+            return new ArraySet<>(array, 0, array.length, order, comparator == null, false, null);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,386 @@
+package info.kgeorgiy.ja.fadeev.arrayset;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+@RunWith(JUnit4.class)
+public class ArraySetTest {
+    private static final int MAX_VALUE = 20;
+    private static final Random random = new Random(7234587234L);
+
+    @Test
+    public void navigationTest() {
+        for (int i = 0; i < 2000; i++) {
+            final List<Integer> values = randomValues(random.nextInt(30), MAX_VALUE);
+            final Comparator<Integer> comparator = randomComparator();
+            final TreeSet<Integer> expected = new TreeSet<>(comparator);
+            expected.addAll(values);
+            checkViews(new ArraySet<>(values, comparator), expected, 5);
+            checkViews(new ArraySet<>(values, comparator).withSearchIndex(), expected, 5);
+        }
+    }
+
+    @Test
+    public void descendingViewTest() {
+        final ArraySet<Integer> set = new ArraySet<>(List.of(5, 1, 4, 2, 3));
+        final ArraySet<Integer> descending = set.descendingSet();
+        Assert.assertEquals(List.of(5, 4, 3, 2, 1), new ArrayList<>(descending));
+        Assert.assertEquals(List.of(4, 3, 2), new ArrayList<>(descending.subSet(4, 1)));
+        Assert.assertEquals(List.of(1, 2, 3, 4, 5), new ArrayList<>(descending.descendingSet()));
+        Assert.assertEquals(Integer.valueOf(4), descending.higher(5));
+        Assert.assertEquals(-1, descending.comparator().compare(2, 1));
+        final Iterator<Integer> iterator = set.descendingIterator();
+        Assert.assertEquals(Integer.valueOf(5), iterator.next());
+    }
+
+    @Test
+    public void illegalRangeTest() {
+        final ArraySet<Integer> set = new ArraySet<>(List.of(1, 10));
+        assertThrows(IllegalArgumentException.class, () -> set.subSet(5, 3));
+        assertThrows(IllegalArgumentException.class, () -> set.descendingSet().subSet(3, 5));
+        assertThrows(IllegalArgumentException.class, () -> new ArraySet<>(List.of(1, 10), Comparator.<Integer>reverseOrder()).subSet(3, 5));
+        Assert.assertTrue(set.subSet(5, false, 5, false).isEmpty());
+    }
+
+    @Test
+    public void emptyTest() {
+        final ArraySet<Integer> set = new ArraySet<>();
+        assertThrows(NoSuchElementException.class, set::first);
+        assertThrows(NoSuchElementException.class, set::last);
+        assertThrows(NoSuchElementException.class, () -> set.iterator().next());
+        Assert.assertNull(set.lower(0));
+        Assert.assertTrue(set.headSet(0).isEmpty());
+        Assert.assertFalse(set.contains(0));
+        Assert.assertFalse(set.contains("string"));
+    }
+
+    @Test
+    public void immutableTest() {
+        final ArraySet<Integer> set = new ArraySet<>(List.of(1, 2, 3));
+        assertThrows(UnsupportedOperationException.class, set::pollFirst);
+        assertThrows(UnsupportedOperationException.class, set::pollLast);
+        assertThrows(UnsupportedOperationException.class, () -> set.add(4));
+        assertThrows(UnsupportedOperationException.class, () -> set.remove(1));
+        assertThrows(UnsupportedOperationException.class, set::clear);
+    }
+
+    @Test
+    public void algebraTest() {
+        for (int i = 0; i < 3000; i++) {
+            final Comparator<Integer> comparator = randomComparator();
+            // Unbalanced sizes exercise galloping, other comparators make operands be re-sorted
+            ArraySet<Integer> a = new ArraySet<>(randomValues(random.nextInt(i % 3 == 0 ? 3 : 60), 100), comparator);
+            final ArraySet<Integer> b = new ArraySet<>(randomValues(random.nextInt(i % 5 == 0 ? 500 : 60), 100),
+                    random.nextInt(4) == 0 ? Comparator.naturalOrder() : comparator);
+            if (!a.isEmpty() && random.nextBoolean()) {
+                a = a.subSet(a.first(), random.nextBoolean(), a.last(), random.nextBoolean());
+            }
+            if (random.nextBoolean()) {
+                a = a.descendingSet();
+            }
+            final TreeSet<Integer> expectedA = new TreeSet<>(a.comparator());
+            expectedA.addAll(a);
+
+            final TreeSet<Integer> union = new TreeSet<>(expectedA);
+            union.addAll(b);
+            final TreeSet<Integer> intersection = new TreeSet<>(expectedA);
+            intersection.retainAll(b);
+            final TreeSet<Integer> difference = new TreeSet<>(expectedA);
+            difference.removeAll(b);
+            final TreeSet<Integer> symmetricDifference = new TreeSet<>(union);
+            symmetricDifference.removeAll(intersection);
+
+            checkSet(a.union(b), union);
+            checkSet(a.intersection(b), intersection);
+            checkSet(a.difference(b), difference);
+            checkSet(a.symmetricDifference(b), symmetricDifference);
+        }
+    }
+
+    @Test
+    public void algebraKeepsOperandsTest() {
+        final ArraySet<Integer> a = new ArraySet<>(List.of(1, 2, 3, 4));
+        final ArraySet<Integer> b = new ArraySet<>(List.of(3, 4, 5));
+        Assert.assertEquals(List.of(1, 2, 3, 4, 5), new ArrayList<>(a.union(b)));
+        Assert.assertEquals(List.of(1, 2, 5), new ArrayList<>(a.symmetricDifference(b)));
+        Assert.assertEquals(List.of(1, 2, 3, 4), new ArrayList<>(a));
+        Assert.assertEquals(List.of(3, 4, 5), new ArrayList<>(b));
+        Assert.assertEquals(List.of(4, 3), new ArrayList<>(a.descendingSet().intersection(b)));
+        Assert.assertTrue(a.difference(a).isEmpty());
+    }
+
+    @Test
+    public void constructorTest() {
+        for (int i = 0; i < 1000; i++) {
+            final Comparator<Integer> comparator = randomComparator();
+            final List<Integer> values = randomValues(random.nextInt(100), MAX_VALUE);
+            final TreeSet<Integer> expected = new TreeSet<>(comparator);
+            expected.addAll(values);
+            checkSet(new ArraySet<>(values, comparator), expected);
+            // Already sorted input takes the path without sorting
+            checkSet(new ArraySet<>(new ArrayList<>(expected), comparator), expected);
+            checkSet(new ArraySet<>(expected, comparator), expected);
+        }
+    }
+
+    @Test
+    public void equalElementsTest() {
+        // The first of elements equal by comparator is kept as TreeSet.addAll does
+        final List<String> values = List.of("b", "A", "a", "B", "c", "C");
+        final TreeSet<String> expected = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        expected.addAll(values);
+        Assert.assertEquals(List.of("A", "b", "c"), new ArrayList<>(expected));
+        Assert.assertEquals(new ArrayList<>(expected), new ArrayList<>(new ArraySet<>(values, String.CASE_INSENSITIVE_ORDER)));
+        Assert.assertEquals(new ArrayList<>(expected), new ArrayList<>(
+                ArraySet.builder(String.CASE_INSENSITIVE_ORDER).addAll(values).build()));
+        assertThrows(NullPointerException.class, () -> new ArraySet<>(Arrays.asList(1, null)));
+        assertThrows(NullPointerException.class, () -> new ArraySet<>(Collections.singletonList((Integer) null)));
+    }
+
+    @Test
+    public void builderTest() {
+        for (int i = 0; i < 500; i++) {
+            final Comparator<Integer> comparator = randomComparator();
+            final ArraySet.Builder<Integer> builder = ArraySet.builder(comparator);
+            final TreeSet<Integer> expected = new TreeSet<>(comparator);
+            final List<ArraySet<Integer>> built = new ArrayList<>();
+            final List<TreeSet<Integer>> snapshots = new ArrayList<>();
+            // Reuse after build, including after an empty one
+            for (int j = 0; j < 4; j++) {
+                final List<Integer> values = randomValues(random.nextInt(j == 0 ? 2 : 40), MAX_VALUE);
+                if (random.nextBoolean()) {
+                    values.forEach(builder::add);
+                } else {
+                    builder.addAll(values);
+                }
+                expected.addAll(values);
+                built.add(builder.build());
+                snapshots.add(new TreeSet<>(expected));
+            }
+            for (int j = 0; j < built.size(); j++) {
+                checkSet(built.get(j), snapshots.get(j));
+            }
+        }
+    }
+
+    @Test
+    public void emptyBuilderReuseTest() {
+        final ArraySet.Builder<Integer> builder = ArraySet.builder();
+        Assert.assertTrue(builder.build().isEmpty());
+        final ArraySet<Integer> set = builder.add(2).add(1).add(2).build();
+        Assert.assertEquals(List.of(1, 2), new ArrayList<>(set));
+        Assert.assertEquals(List.of(1, 2, 3), new ArrayList<>(builder.add(3).build()));
+        Assert.assertEquals(List.of(1, 2), new ArrayList<>(set));
+    }
+
+    @Test
+    public void collectorTest() {
+        for (int i = 0; i < 200; i++) {
+            final Comparator<Integer> comparator = randomComparator();
+            final List<Integer> values = randomValues(random.nextInt(5000), 1000);
+            final TreeSet<Integer> expected = new TreeSet<>(comparator);
+            expected.addAll(values);
+            Assert.assertEquals(new ArrayList<>(expected),
+                    new ArrayList<>(values.stream().collect(ArraySet.toArraySet(comparator))));
+            Assert.assertEquals(new ArrayList<>(expected),
+                    new ArrayList<>(values.parallelStream().collect(ArraySet.toArraySet(comparator))));
+        }
+    }
+
+    @Test
+    public void spliteratorTest() {
+        for (int i = 0; i < 1000; i++) {
+            final List<Integer> values = randomValues(random.nextInt(i % 10 == 0 ? 3000 : 40), i % 10 == 0 ? 5000 : MAX_VALUE);
+            final Comparator<Integer> comparator = randomComparator();
+            ArraySet<Integer> set = new ArraySet<>(values, comparator);
+            NavigableSet<Integer> expected = new TreeSet<>(comparator);
+            expected.addAll(values);
+            // Same random window of both sets, as subSet, headSet, tailSet or descending one
+            for (int depth = random.nextInt(4); depth > 0 && !expected.isEmpty(); depth--) {
+                final List<Integer> elements = new ArrayList<>(expected);
+                final Integer from = elements.get(random.nextInt(elements.size()));
+                final Integer to = elements.get(random.nextInt(elements.size()));
+                final boolean ordered = expected.comparator() == null ? from <= to : expected.comparator().compare(from, to) <= 0;
+                final Integer low = ordered ? from : to;
+                final Integer high = ordered ? to : from;
+                final boolean inclusive = random.nextBoolean();
+                switch (random.nextInt(4)) {
+                    case 0:
+                        set = set.descendingSet();
+                        expected = expected.descendingSet();
+                        break;
+                    case 1:
+                        set = set.subSet(low, inclusive, high, !inclusive);
+                        expected = expected.subSet(low, inclusive, high, !inclusive);
+                        break;
+                    case 2:
+                        set = set.headSet(high, inclusive);
+                        expected = expected.headSet(high, inclusive);
+                        break;
+                    default:
+                        set = set.tailSet(low, inclusive);
+                        expected = expected.tailSet(low, inclusive);
+                        break;
+                }
+            }
+            checkSpliterator(set, expected);
+        }
+    }
+
+    // Splits spliterator of set down to single elements, checking halves to be even and ordered
+    private static void checkSpliterator(final ArraySet<Integer> set, final NavigableSet<Integer> expected) {
+        final List<Integer> list = new ArrayList<>(expected);
+        final Spliterator<Integer> spliterator = set.spliterator();
+        final int characteristics = Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.SORTED
+                | Spliterator.DISTINCT | Spliterator.ORDERED | Spliterator.IMMUTABLE;
+        Assert.assertEquals(characteristics, spliterator.characteristics());
+        Assert.assertEquals(compare(expected.comparator()), compare(spliterator.getComparator()));
+        Assert.assertEquals(list.size(), spliterator.getExactSizeIfKnown());
+        Assert.assertEquals(list, split(spliterator, characteristics));
+
+        // Part of elements taken one by one, the rest in bulk
+        final Spliterator<Integer> partial = set.spliterator();
+        final List<Integer> advanced = new ArrayList<>();
+        for (int i = random.nextInt(list.size() + 1); i > 0; i--) {
+            Assert.assertTrue(partial.tryAdvance(advanced::add));
+        }
+        Assert.assertEquals(list.size() - advanced.size(), partial.estimateSize());
+        partial.forEachRemaining(advanced::add);
+        Assert.assertFalse(partial.tryAdvance(e -> Assert.fail()));
+        Assert.assertEquals(list, advanced);
+
+        Assert.assertEquals(list, set.parallelStream().collect(Collectors.toList()));
+        Assert.assertEquals(list.size(), set.parallelStream().count());
+        Assert.assertEquals(list.stream().mapToLong(Integer::longValue).sum(),
+                set.parallelStream().mapToLong(Integer::longValue).sum());
+        Assert.assertEquals(list.stream().filter(e -> e % 3 == 0).skip(1).collect(Collectors.toList()),
+                set.parallelStream().filter(e -> e % 3 == 0).skip(1).collect(Collectors.toList()));
+        Assert.assertEquals(list.stream().findFirst(), set.parallelStream().findFirst());
+    }
+
+    private static List<Integer> split(final Spliterator<Integer> spliterator, final int characteristics) {
+        final long size = spliterator.estimateSize();
+        final Spliterator<Integer> prefix = spliterator.trySplit();
+        final List<Integer> elements = new ArrayList<>();
+        if (prefix == null) {
+            Assert.assertTrue("unsplit window of " + size, size <= 1);
+            spliterator.forEachRemaining(elements::add);
+            Assert.assertEquals(size, elements.size());
+            return elements;
+        }
+        Assert.assertEquals(characteristics, prefix.characteristics());
+        Assert.assertEquals(size, prefix.estimateSize() + spliterator.estimateSize());
+        Assert.assertTrue(Math.abs(prefix.estimateSize() - spliterator.estimateSize()) <= 1);
+        elements.addAll(split(prefix, characteristics));
+        elements.addAll(split(spliterator, characteristics));
+        return elements;
+    }
+
+    // Compares set with expected one, then some random view of it with the same view of expected
+    private static void checkViews(final NavigableSet<Integer> set, final NavigableSet<Integer> expected, final int depth) {
+        checkSet(set, expected);
+        if (depth == 0 || expected.isEmpty()) {
+            return;
+        }
+        final List<Integer> elements = new ArrayList<>(expected);
+        final Integer from = elements.get(random.nextInt(elements.size()));
+        final Integer to = elements.get(random.nextInt(elements.size()));
+        final boolean ordered = expected.comparator() == null ? from <= to : expected.comparator().compare(from, to) <= 0;
+        final Integer low = ordered ? from : to;
+        final Integer high = ordered ? to : from;
+        final boolean lowInclusive = random.nextBoolean();
+        final boolean highInclusive = random.nextBoolean();
+        switch (random.nextInt(7)) {
+            case 0:
+                checkViews(set.descendingSet(), expected.descendingSet(), depth - 1);
+                break;
+            case 1:
+                checkViews(set.subSet(low, lowInclusive, high, highInclusive),
+                        expected.subSet(low, lowInclusive, high, highInclusive), depth - 1);
+                break;
+            case 2:
+                checkViews(set.headSet(high, highInclusive), expected.headSet(high, highInclusive), depth - 1);
+                break;
+            case 3:
+                checkViews(set.tailSet(low, lowInclusive), expected.tailSet(low, lowInclusive), depth - 1);
+                break;
+            case 4:
+                checkSet((NavigableSet<Integer>) set.subSet(low, high), (NavigableSet<Integer>) expected.subSet(low, high));
+                break;
+            case 5:
+                checkSet((NavigableSet<Integer>) set.headSet(high), (NavigableSet<Integer>) expected.headSet(high));
+                break;
+            default:
+                checkSet((NavigableSet<Integer>) set.tailSet(low), (NavigableSet<Integer>) expected.tailSet(low));
+                break;
+        }
+    }
+
+    private static void checkSet(final NavigableSet<Integer> set, final NavigableSet<Integer> expected) {
+        Assert.assertEquals(new ArrayList<>(expected), new ArrayList<>(set));
+        Assert.assertEquals(new ArrayList<>(expected.descendingSet()), toList(set.descendingIterator()));
+        Assert.assertEquals(expected.size(), set.size());
+        Assert.assertEquals(expected, set);
+        Assert.assertEquals(expected.hashCode(), set.hashCode());
+        if (!expected.isEmpty()) {
+            Assert.assertEquals(expected.first(), set.first());
+            Assert.assertEquals(expected.last(), set.last());
+        }
+        Assert.assertEquals(compare(expected.comparator()), compare(set.comparator()));
+        for (int e = -MAX_VALUE - 2; e <= MAX_VALUE + 2; e++) {
+            final String message = "element " + e + " of " + expected;
+            Assert.assertEquals(message, expected.contains(e), set.contains(e));
+            Assert.assertEquals(message, expected.lower(e), set.lower(e));
+            Assert.assertEquals(message, expected.floor(e), set.floor(e));
+            Assert.assertEquals(message, expected.ceiling(e), set.ceiling(e));
+            Assert.assertEquals(message, expected.higher(e), set.higher(e));
+        }
+    }
+
+    // Order of a comparator, null for natural one
+    private static Integer compare(final Comparator<? super Integer> comparator) {
+        return comparator == null ? null : Integer.signum(comparator.compare(1, 2));
+    }
+
+    private static List<Integer> toList(final Iterator<Integer> iterator) {
+        final List<Integer> list = new ArrayList<>();
+        iterator.forEachRemaining(list::add);
+        return list;
+    }
+
+    static List<Integer> randomValues(final int size, final int bound) {
+        final List<Integer> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(random.nextInt(2 * bound + 1) - bound);
+        }
+        return values;
+    }
+
+    static Comparator<Integer> randomComparator() {
+        switch (random.nextInt(3)) {
+            case 0:
+                return null;
+            case 1:
+                return Comparator.reverseOrder();
+            default:
+                return Comparator.comparingInt(e -> Math.abs(e) * 2 + (e < 0 ? 1 : 0));
+        }
+    }
+
+    static void assertThrows(final Class<? extends Throwable> expected, final Runnable action) {
+        try {
+            action.run();
+        } catch (final Throwable e) {
+            if (expected.isInstance(e)) {
+                return;
+            }
+            throw new AssertionError("expected " + expected.getName() + ", thrown " + e, e);
+        }
+        Assert.fail("expected " + expected.getName());
+    }
+}
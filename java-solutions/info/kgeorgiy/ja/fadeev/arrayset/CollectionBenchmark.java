@@ -0,0 +1,243 @@
+package info.kgeorgiy.ja.fadeev.arrayset;
+
+import java.util.*;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Compares {@link ArraySet} with {@link TreeSet} and a sorted {@link ArrayList} searched by
+ * {@link Collections#binarySearch}: construction, {@code contains} hits and misses, creation of
+ * {@code subSet}, {@code headSet} and {@code tailSet} views, iteration and retained heap per element.
+ * Every size runs with natural order and with a custom comparator.
+ * <p>
+ * Usage: {@code CollectionBenchmark [size...]}, default sizes are powers of ten from {@code 10} to {@code 10^7}.
+ * Times are the best of {@value #ROUNDS} rounds after {@value #WARMUP} warm-up rounds, in nanoseconds
+ * per operation or per element. Memory is measured by heap usage after garbage collection, so run it
+ * with {@code -Xms} equal to {@code -Xmx}, e.g. {@code -Xms24g -Xmx24g} for {@code 10^8}.
+ */
+public class CollectionBenchmark {
+    private static final int WARMUP = 3;
+    private static final int ROUNDS = 5;
+    private static final int QUERIES = 1 << 16;
+    private static final int VIEWS = 1 << 14;
+    // Construction and iteration are repeated until this many elements are processed per round
+    private static final int ELEMENTS = 1 << 22;
+
+    private static final Comparator<Integer> CUSTOM = (a, b) -> Integer.compare(b, a);
+
+    private static final List<Subject<?>> SUBJECTS = List.of(
+            new Subject<ArraySet<Integer>>("ArraySet") {
+                @Override
+                ArraySet<Integer> build(List<Integer> values, Comparator<Integer> comparator) {
+                    return new ArraySet<>(values, comparator);
+                }
+
+                @Override
+                boolean contains(ArraySet<Integer> set, Integer e) {
+                    return set.contains(e);
+                }
+
+                @Override
+                int views(ArraySet<Integer> set, Integer from, Integer to) {
+                    return set.subSet(from, to).size() + set.headSet(to).size() + set.tailSet(from).size();
+                }
+            },
+            new Subject<TreeSet<Integer>>("TreeSet") {
+                @Override
+                TreeSet<Integer> build(List<Integer> values, Comparator<Integer> comparator) {
+                    TreeSet<Integer> set = new TreeSet<>(comparator);
+                    set.addAll(values);
+                    return set;
+                }
+
+                @Override
+                boolean contains(TreeSet<Integer> set, Integer e) {
+                    return set.contains(e);
+                }
+
+                // Sizes of TreeSet views take linear time, so only emptiness is checked
+                @Override
+                int views(TreeSet<Integer> set, Integer from, Integer to) {
+                    return (set.subSet(from, to).isEmpty() ? 0 : 1) + (set.headSet(to).isEmpty() ? 0 : 1)
+                            + (set.tailSet(from).isEmpty() ? 0 : 1);
+                }
+            },
+            new Subject<SortedList>("ArrayList") {
+                @Override
+                SortedList build(List<Integer> values, Comparator<Integer> comparator) {
+                    return new SortedList(values, comparator);
+                }
+
+                @Override
+                boolean contains(SortedList list, Integer e) {
+                    return Collections.binarySearch(list.values, e, list.comparator) >= 0;
+                }
+
+                @Override
+                int views(SortedList list, Integer from, Integer to) {
+                    int fromIndex = list.ceiling(from);
+                    int toIndex = list.ceiling(to);
+                    return list.values.subList(fromIndex, toIndex).size()
+                            + list.values.subList(0, toIndex).size()
+                            + list.values.subList(fromIndex, list.values.size()).size();
+                }
+            }
+    );
+
+    // Keeps results observable, so the JIT cannot drop measured loops
+    private static long sink;
+
+    public static void main(String[] args) {
+        long[] sizes = args.length == 0
+                ? new long[]{10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000}
+                : Arrays.stream(args).mapToLong(Long::parseLong).toArray();
+        System.out.printf("%10s %8s %10s %10s %10s %10s %10s %10s %10s%n",
+                "size", "order", "subject", "build/e", "hit", "miss", "views", "iterate/e", "bytes/e");
+        for (long size : sizes) {
+            for (Comparator<Integer> comparator : Arrays.asList(null, CUSTOM)) {
+                for (Subject<?> subject : SUBJECTS) {
+                    run(subject, (int) size, comparator);
+                }
+            }
+        }
+        System.err.println(sink);
+    }
+
+    private static <C> void run(Subject<C> subject, int size, Comparator<Integer> comparator) {
+        Random random = new Random(size);
+        // Even numbers are present, odd ones are misses
+        List<Integer> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(2 * i);
+        }
+        Collections.shuffle(values, random);
+        Integer[] hits = new Integer[QUERIES];
+        Integer[] misses = new Integer[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            hits[i] = values.get(random.nextInt(size));
+            misses[i] = hits[i] + 1;
+        }
+        Integer[][] bounds = new Integer[VIEWS][];
+        for (int i = 0; i < VIEWS; i++) {
+            int a = values.get(random.nextInt(size));
+            int b = values.get(random.nextInt(size));
+            bounds[i] = comparator == null ? new Integer[]{Math.min(a, b), Math.max(a, b)} : new Integer[]{Math.max(a, b), Math.min(a, b)};
+        }
+
+        int builds = Math.max(1, ELEMENTS / size);
+        double bytes = (double) retained(() -> subject.build(values, comparator), builds) / builds / size;
+        C collection = subject.build(values, comparator);
+        double build = measure(() -> {
+            long sum = 0;
+            for (int i = 0; i < builds; i++) {
+                sum += System.identityHashCode(subject.build(values, comparator));
+            }
+            return sum;
+        }, (long) builds * size);
+        double hit = measure(() -> count(subject, collection, hits), QUERIES);
+        double miss = measure(() -> count(subject, collection, misses), QUERIES);
+        double views = measure(() -> {
+            long sum = 0;
+            for (Integer[] bound : bounds) {
+                sum += subject.views(collection, bound[0], bound[1]);
+            }
+            return sum;
+        }, VIEWS * 3L);
+        int passes = Math.max(1, ELEMENTS / size);
+        double iterate = measure(() -> {
+            long sum = 0;
+            for (int i = 0; i < passes; i++) {
+                for (Integer e : subject.iterable(collection)) {
+                    sum += e;
+                }
+            }
+            return sum;
+        }, (long) passes * size);
+
+        System.out.println(String.format(Locale.ROOT, "%10d %8s %10s %10.1f %10.1f %10.1f %10.1f %10.2f %10.1f",
+                size, comparator == null ? "natural" : "custom", subject.name,
+                build, hit, miss, views, iterate, bytes));
+    }
+
+    private static <C> long count(Subject<C> subject, C collection, Integer[] queries) {
+        long found = 0;
+        for (Integer query : queries) {
+            if (subject.contains(collection, query)) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    // Best time in nanoseconds per operation
+    private static double measure(LongSupplier task, long operations) {
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round < WARMUP + ROUNDS; round++) {
+            long start = System.nanoTime();
+            sink += task.getAsLong();
+            double time = (double) (System.nanoTime() - start) / operations;
+            if (round >= WARMUP) {
+                best = Math.min(best, time);
+            }
+        }
+        return best;
+    }
+
+    // Heap retained by built collections beyond their elements, which are shared with the source list.
+    // Many copies are kept, as heap usage is only known up to GC region size, and the baseline
+    // is taken after the copies are released, when garbage of previous runs is surely collected
+    private static long retained(Supplier<?> builder, int copies) {
+        Object[] collections = new Object[copies];
+        for (int i = 0; i < copies; i++) {
+            collections[i] = builder.get();
+        }
+        long used = usedAfterGc();
+        sink += System.identityHashCode(collections[copies - 1]);
+        Arrays.fill(collections, null);
+        return Math.max(0, used - usedAfterGc());
+    }
+
+    private static long usedAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private abstract static class Subject<C> {
+        final String name;
+
+        Subject(String name) {
+            this.name = name;
+        }
+
+        abstract C build(List<Integer> values, Comparator<Integer> comparator);
+
+        abstract boolean contains(C collection, Integer e);
+
+        // Creates subSet, headSet and tailSet views of [from, to), returning something derived from them
+        abstract int views(C collection, Integer from, Integer to);
+
+        @SuppressWarnings("unchecked")
+        Iterable<Integer> iterable(C collection) {
+            return collection instanceof SortedList ? ((SortedList) collection).values : (Iterable<Integer>) collection;
+        }
+    }
+
+    private static final class SortedList {
+        final List<Integer> values;
+        final Comparator<Integer> comparator;
+
+        SortedList(List<Integer> values, Comparator<Integer> comparator) {
+            this.values = new ArrayList<>(values);
+            this.values.sort(comparator);
+            this.comparator = comparator;
+        }
+
+        int ceiling(Integer e) {
+            int i = Collections.binarySearch(values, e, comparator);
+            return i < 0 ? -i - 1 : i;
+        }
+    }
+}
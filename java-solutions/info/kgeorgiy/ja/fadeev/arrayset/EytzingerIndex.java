@@ -0,0 +1,53 @@
+package info.kgeorgiy.ja.fadeev.arrayset;
+
+import java.util.Comparator;
+
+/**
+ * Search index over a sorted array in Eytzinger (breadth-first) order: children of node {@code k}
+ * are {@code 2k} and {@code 2k + 1}. First levels of the tree share a few cache lines,
+ * so a search touches much less memory than a binary search over the sorted array.
+ * The descent needs no bounds arithmetic and ends with a bit trick instead of a final probe.
+ */
+class EytzingerIndex<E> {
+    private final Object[] tree;
+    // Index in the sorted array of each tree node
+    private final int[] rank;
+    private final int size;
+
+    EytzingerIndex(E[] sorted) {
+        size = sorted.length;
+        tree = new Object[size + 1];
+        rank = new int[size + 1];
+        fill(sorted, 0, 1);
+    }
+
+    // In-order traversal of the implicit tree assigns sorted elements to nodes
+    private int fill(E[] sorted, int i, int k) {
+        if (k <= size) {
+            i = fill(sorted, i, 2 * k);
+            tree[k] = sorted[i];
+            rank[k] = i++;
+            i = fill(sorted, i, 2 * k + 1);
+        }
+        return i;
+    }
+
+    // Index of the first sorted element not less (inclusive) or greater (exclusive) than e
+    @SuppressWarnings("unchecked")
+    int bound(E e, boolean inclusive, Comparator<? super E> comparator) {
+        int limit = inclusive ? 0 : 1;
+        int k = 1;
+        while (k <= size) {
+            // A branch lets the CPU speculatively load the next element, while a conditional move
+            // would wait for each comparison: with elements behind references that is twice slower
+            if (comparator.compare((E) tree[k], e) < limit) {
+                k = 2 * k + 1;
+            } else {
+                k = 2 * k;
+            }
+        }
+        // Drop the trailing right turns and the last left turn to get the answer node
+        k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+        return k == 0 ? size : rank[k];
+    }
+}
@@ -0,0 +1,263 @@
+package info.kgeorgiy.ja.fadeev.arrayset;
+
+import java.util.*;
+
+/**
+ * Immutable sorted set of strings stored front-coded: each string keeps only its suffix after
+ * the common prefix with the previous one. Strings are grouped in blocks of {@value #BLOCK_SIZE}
+ * starting with a full string, block starts are the sampled index for binary search,
+ * and a block is decoded only when its strings are needed.
+ * <p>
+ * Characters are encoded one UTF-16 unit at a time in the UTF-8 manner, so the byte order
+ * of encoded strings is the natural order of strings.
+ */
+public class FrontCodedStringSet extends AbstractWindowSet<String, FrontCodedStringSet> {
+    private static final int BLOCK_SIZE = 16;
+
+    // Block starts with vint length and bytes, other strings are vint prefix, vint suffix length and suffix bytes
+    private final byte[] data;
+    private final int[] blocks;
+    private final int maxLength;
+    private final int count;
+
+    public FrontCodedStringSet() {
+        this(Collections.emptyList());
+    }
+
+    public FrontCodedStringSet(Collection<String> collection) {
+        this(collection instanceof ArraySet && ((ArraySet<String>) collection).comparator() == null
+                ? (ArraySet<String>) collection
+                : new ArraySet<>(collection));
+    }
+
+    private FrontCodedStringSet(ArraySet<String> sorted) {
+        super(0, sorted.size(), false);
+        byte[] data = new byte[16];
+        int[] blocks = new int[(sorted.size() + BLOCK_SIZE - 1) / BLOCK_SIZE];
+        byte[] previous = new byte[0];
+        int maxLength = 0;
+        int size = 0;
+        int n = 0;
+        for (String s : sorted) {
+            byte[] current = encode(s);
+            if (data.length < size + current.length + 10) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, size + current.length + 10));
+            }
+            if (n % BLOCK_SIZE == 0) {
+                blocks[n / BLOCK_SIZE] = size;
+                size = putInt(data, size, current.length);
+                System.arraycopy(current, 0, data, size, current.length);
+                size += current.length;
+            } else {
+                int prefix = Arrays.mismatch(previous, current);
+                prefix = prefix < 0 ? previous.length : prefix;
+                size = putInt(data, size, prefix);
+                size = putInt(data, size, current.length - prefix);
+                System.arraycopy(current, prefix, data, size, current.length - prefix);
+                size += current.length - prefix;
+            }
+            previous = current;
+            maxLength = Math.max(maxLength, current.length);
+            n++;
+        }
+        this.data = Arrays.copyOf(data, size);
+        this.blocks = blocks;
+        this.maxLength = maxLength;
+        this.count = n;
+    }
+
+    private FrontCodedStringSet(FrontCodedStringSet set, int from, int to, boolean descending) {
+        super(from, to, descending);
+        this.data = set.data;
+        this.blocks = set.blocks;
+        this.maxLength = set.maxLength;
+        this.count = set.count;
+    }
+
+    @Override
+    FrontCodedStringSet window(int fromIndex, int toIndex, boolean descending) {
+        return new FrontCodedStringSet(this, fromIndex, Math.max(fromIndex, toIndex), descending);
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<>() {
+            private final String[] block = new String[BLOCK_SIZE];
+            private final Cursor cursor = new Cursor();
+            private int decoded = -1;
+            private int i = descending ? to - 1 : from;
+
+            @Override
+            public boolean hasNext() {
+                return descending ? i >= from : i < to;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (i / BLOCK_SIZE != decoded) {
+                    decoded = i / BLOCK_SIZE;
+                    cursor.seek(decoded);
+                    for (int j = 0; j < BLOCK_SIZE && cursor.index < count; j++) {
+                        block[j] = cursor.next().string();
+                    }
+                }
+                return descending ? block[i-- % BLOCK_SIZE] : block[i++ % BLOCK_SIZE];
+            }
+        };
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof String && search((String) o) >= 0;
+    }
+
+    @Override
+    public Comparator<? super String> comparator() {
+        return descending ? Collections.reverseOrder() : null;
+    }
+
+    // Same contract as Arrays.binarySearch over [from, to): the whole set is searched, then clamped to the window
+    @Override
+    int search(String e) {
+        byte[] key = encode(e);
+        Cursor cursor = new Cursor();
+        int lo = 0;
+        int hi = blocks.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = cursor.seek(mid).compareHead(key);
+            if (c < 0) {
+                lo = mid + 1;
+            } else if (c > 0) {
+                hi = mid - 1;
+            } else {
+                return clamp(mid * BLOCK_SIZE, true);
+            }
+        }
+        if (hi < 0) {
+            return clamp(0, false);
+        }
+        // Key is greater than the first string of block hi and less than the first string of the next one
+        cursor.seek(hi).next();
+        int end = Math.min((hi + 1) * BLOCK_SIZE, count);
+        while (cursor.index < end) {
+            int c = cursor.next().compareTo(key);
+            if (c >= 0) {
+                return clamp(cursor.index - 1, c == 0);
+            }
+        }
+        return clamp(end, false);
+    }
+
+    // Converts global index of the string or of the insertion point to the window
+    private int clamp(int i, boolean found) {
+        if (found && from <= i && i < to) {
+            return i;
+        }
+        return -Math.min(Math.max(i, from), to) - 1;
+    }
+
+    @Override
+    String get(int i) {
+        Cursor cursor = new Cursor().seek(i / BLOCK_SIZE);
+        while (cursor.index <= i) {
+            cursor.next();
+        }
+        return cursor.string();
+    }
+
+    // Decodes strings of a block one by one, keeping the last one in bytes[0, length).
+    // A cursor is made once per operation or iterator and moved between blocks by seek
+    private final class Cursor {
+        private final byte[] bytes = new byte[maxLength];
+        private int length;
+        private int offset;
+        // Index of the string to be decoded next
+        private int index;
+
+        Cursor seek(int block) {
+            offset = blocks[block];
+            index = block * BLOCK_SIZE;
+            return this;
+        }
+
+        // Compares the first string of the block sought with key in place, without decoding it
+        int compareHead(byte[] key) {
+            int headLength = readInt();
+            return Arrays.compareUnsigned(data, offset, offset + headLength, key, 0, key.length);
+        }
+
+        Cursor next() {
+            int prefix = index % BLOCK_SIZE == 0 ? 0 : readInt();
+            int suffix = readInt();
+            System.arraycopy(data, offset, bytes, prefix, suffix);
+            offset += suffix;
+            length = prefix + suffix;
+            index++;
+            return this;
+        }
+
+        private int readInt() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[offset++];
+                value |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+        int compareTo(byte[] key) {
+            return Arrays.compareUnsigned(bytes, 0, length, key, 0, key.length);
+        }
+
+        String string() {
+            char[] chars = new char[length];
+            int n = 0;
+            for (int i = 0; i < length; n++) {
+                int b = bytes[i++] & 0xff;
+                if (b < 0x80) {
+                    chars[n] = (char) b;
+                } else if (b < 0xe0) {
+                    chars[n] = (char) ((b & 0x1f) << 6 | bytes[i++] & 0x3f);
+                } else {
+                    chars[n] = (char) ((b & 0x0f) << 12 | (bytes[i++] & 0x3f) << 6 | bytes[i++] & 0x3f);
+                }
+            }
+            return new String(chars, 0, n);
+        }
+    }
+
+    // Unpaired surrogates are kept, as each UTF-16 unit is encoded separately
+    private static byte[] encode(String s) {
+        byte[] bytes = new byte[s.length() * 3];
+        int n = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                bytes[n++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[n++] = (byte) (0xc0 | c >> 6);
+                bytes[n++] = (byte) (0x80 | c & 0x3f);
+            } else {
+                bytes[n++] = (byte) (0xe0 | c >> 12);
+                bytes[n++] = (byte) (0x80 | c >> 6 & 0x3f);
+                bytes[n++] = (byte) (0x80 | c & 0x3f);
+            }
+        }
+        return n == bytes.length ? bytes : Arrays.copyOf(bytes, n);
+    }
+
+    private static int putInt(byte[] data, int offset, int value) {
+        while ((value & ~0x7f) != 0) {
+            data[offset++] = (byte) (value & 0x7f | 0x80);
+            value >>>= 7;
+        }
+        data[offset++] = (byte) value;
+        return offset;
+    }
+}
@@ -0,0 +1,109 @@
+package info.kgeorgiy.ja.fadeev.arrayset;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.*;
+import java.util.function.Function;
+
+@RunWith(JUnit4.class)
+public class FrontCodedStringSetTest {
+    // Pieces sharing prefixes, with characters of every encoded length, a surrogate pair and an unpaired surrogate
+    private static final String[] PIECES = {
+            "", "a", "ab", "abc", "b", "\0", "\u007f", "\u0080", "é", "Ж", "߿", "ࠀ", "中", "￿",
+            "😀", "\ud800", "\udfff"
+    };
+    private static final Random random = new Random(3458723458L);
+
+    @Test
+    public void blockBoundariesTest() {
+        for (final int size : new int[]{0, 1, 2, 15, 16, 17, 31, 32, 33, 48, 64, 65, 1000}) {
+            final TreeSet<String> expected = new TreeSet<>();
+            while (expected.size() < size) {
+                expected.add(randomString());
+            }
+            check(new FrontCodedStringSet(expected), expected);
+        }
+    }
+
+    @Test
+    public void randomTest() {
+        for (int i = 0; i < 500; i++) {
+            final List<String> values = new ArrayList<>();
+            for (int j = random.nextInt(i % 10 == 0 ? 1000 : 60); j > 0; j--) {
+                values.add(randomString());
+            }
+            check(new FrontCodedStringSet(values), new TreeSet<>(values));
+        }
+    }
+
+    @Test
+    public void sharedPrefixesTest() {
+        // Every string extends the previous one, so all of them but block heads are stored as one character
+        final TreeSet<String> expected = new TreeSet<>();
+        final StringBuilder s = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            expected.add(s.toString());
+            s.append(PIECES[1 + i % (PIECES.length - 1)]);
+        }
+        check(new FrontCodedStringSet(expected), expected);
+    }
+
+    @Test
+    public void sortedSourceTest() {
+        final List<String> values = List.of("b", "a", "c", "a", "");
+        final TreeSet<String> expected = new TreeSet<>(values);
+        check(new FrontCodedStringSet(new ArraySet<>(values)), expected);
+        // Other order of the source does not matter
+        check(new FrontCodedStringSet(new ArraySet<>(values, Comparator.reverseOrder())), expected);
+    }
+
+    @Test
+    public void otherTypesTest() {
+        final FrontCodedStringSet set = new FrontCodedStringSet(List.of("1", "2"));
+        Assert.assertFalse(set.contains(1));
+        Assert.assertFalse(set.contains(null));
+        Assert.assertEquals(new TreeSet<>(List.of("1", "2")), set);
+        Assert.assertEquals(Collections.reverseOrder(), set.descendingSet().comparator());
+        Assert.assertNull(set.comparator());
+        ArraySetTest.assertThrows(UnsupportedOperationException.class, () -> set.add("3"));
+        ArraySetTest.assertThrows(UnsupportedOperationException.class, set::pollFirst);
+        ArraySetTest.assertThrows(IllegalArgumentException.class, () -> set.subSet("2", "1"));
+    }
+
+    private static void check(final FrontCodedStringSet set, final TreeSet<String> expected) {
+        final List<String> probes = new ArrayList<>(expected);
+        for (final String e : expected) {
+            probes.add(e + "\0");
+            probes.add(e + "￿");
+            if (!e.isEmpty()) {
+                probes.add(e.substring(0, e.length() - 1));
+            }
+        }
+        for (int i = 0; i < 50; i++) {
+            probes.add(randomString());
+        }
+        for (int i = 0; i < 5; i++) {
+            MappedArraySetTest.checkViews(set, expected, probes, Function.identity(), 4);
+        }
+        Assert.assertEquals(new ArrayList<>(expected), Arrays.asList(set.toArray()));
+        Assert.assertEquals(expected.hashCode(), set.hashCode());
+        if (!expected.isEmpty()) {
+            final String low = expected.first();
+            final String high = expected.last();
+            Assert.assertEquals(new ArrayList<>(expected.subSet(low, high)), new ArrayList<>(set.subSet(low, high)));
+            Assert.assertEquals(new ArrayList<>(expected.headSet(high)), new ArrayList<>(set.headSet(high)));
+            Assert.assertEquals(new ArrayList<>(expected.tailSet(high)), new ArrayList<>(set.tailSet(high)));
+        }
+    }
+
+    private static String randomString() {
+        final StringBuilder s = new StringBuilder();
+        for (int i = random.nextInt(5); i > 0; i--) {
+            s.append(PIECES[random.nextInt(PIECES.length)]);
+        }
+        return s.toString();
+    }
+}
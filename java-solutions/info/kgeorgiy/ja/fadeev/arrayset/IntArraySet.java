@@ -0,0 +1,149 @@
+package info.kgeorgiy.ja.fadeev.arrayset;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+public class IntArraySet extends AbstractSet<Integer> implements SortedSet<Integer> {
+    private final int[] elements;
+    private final int from;
+    private final int to;
+
+    public IntArraySet() {
+        this(new int[0], 0, 0);
+    }
+
+    public IntArraySet(final int... values) {
+        this.elements = sorted(values.clone());
+        this.from = 0;
+        this.to = elements.length;
+    }
+
+    public IntArraySet(final Collection<? extends Integer> collection) {
+        this(collection.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private IntArraySet(final int[] elements, final int from, final int to) {
+        this.elements = elements;
+        this.from = from;
+        this.to = to;
+    }
+
+    private static int[] sorted(final int[] values) {
+        Arrays.sort(values);
+        int size = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (i == 0 || values[i] != values[size - 1]) {
+                values[size++] = values[i];
+            }
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int i = from;
+
+            @Override
+            public boolean hasNext() {
+                return i < to;
+            }
+
+            @Override
+            public int nextInt() {
+                if (i >= to) {
+                    throw new NoSuchElementException();
+                }
+                return elements[i++];
+            }
+        };
+    }
+
+    public void forEachInt(final IntConsumer action) {
+        for (int i = from; i < to; i++) {
+            action.accept(elements[i]);
+        }
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    public boolean contains(final int value) {
+        return Arrays.binarySearch(elements, from, to, value) >= 0;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return o instanceof Integer && contains((int) (Integer) o);
+    }
+
+    @Override
+    public Comparator<? super Integer> comparator() {
+        return null;
+    }
+
+    @Override
+    public IntArraySet subSet(final Integer from, final Integer to) {
+        return subSet((int) from, (int) to);
+    }
+
+    public IntArraySet subSet(final int fromValue, final int toValue) {
+        if (fromValue > toValue) {
+            throw new IllegalArgumentException();
+        }
+        return new IntArraySet(elements, findRealIndex(fromValue), findRealIndex(toValue));
+    }
+
+    @Override
+    public IntArraySet headSet(final Integer to) {
+        return headSet((int) to);
+    }
+
+    public IntArraySet headSet(final int toValue) {
+        return new IntArraySet(elements, from, findRealIndex(toValue));
+    }
+
+    @Override
+    public IntArraySet tailSet(final Integer from) {
+        return tailSet((int) from);
+    }
+
+    public IntArraySet tailSet(final int fromValue) {
+        return new IntArraySet(elements, findRealIndex(fromValue), to);
+    }
+
+    @Override
+    public Integer first() {
+        return firstInt();
+    }
+
+    @Override
+    public Integer last() {
+        return lastInt();
+    }
+
+    public int firstInt() {
+        if (isEmpty())
+            throw new NoSuchElementException();
+        return elements[from];
+    }
+
+    public int lastInt() {
+        if (isEmpty())
+            throw new NoSuchElementException();
+        return elements[to - 1];
+    }
+
+    public int[] toIntArray() {
+        return Arrays.copyOfRange(elements, from, to);
+    }
+
+    private int findRealIndex(final int value) {
+        int i = Arrays.binarySearch(elements, from, to, value);
+        if (i < 0)
+            i = -i - 1;
+        return i;
+    }
+}
@@ -0,0 +1,149 @@
+package info.kgeorgiy.ja.fadeev.arrayset;
+
+import java.util.*;
+import java.util.function.LongConsumer;
+
+public class LongArraySet extends AbstractSet<Long> implements SortedSet<Long> {
+    private final long[] elements;
+    private final int from;
+    private final int to;
+
+    public LongArraySet() {
+        this(new long[0], 0, 0);
+    }
+
+    public LongArraySet(final long... values) {
+        this.elements = sorted(values.clone());
+        this.from = 0;
+        this.to = elements.length;
+    }
+
+    public LongArraySet(final Collection<? extends Long> collection) {
+        this(collection.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    private LongArraySet(final long[] elements, final int from, final int to) {
+        this.elements = elements;
+        this.from = from;
+        this.to = to;
+    }
+
+    private static long[] sorted(final long[] values) {
+        Arrays.sort(values);
+        int size = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (i == 0 || values[i] != values[size - 1]) {
+                values[size++] = values[i];
+            }
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            private int i = from;
+
+            @Override
+            public boolean hasNext() {
+                return i < to;
+            }
+
+            @Override
+            public long nextLong() {
+                if (i >= to) {
+                    throw new NoSuchElementException();
+                }
+                return elements[i++];
+            }
+        };
+    }
+
+    public void forEachLong(final LongConsumer action) {
+        for (int i = from; i < to; i++) {
+            action.accept(elements[i]);
+        }
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    public boolean contains(final long value) {
+        return Arrays.binarySearch(elements, from, to, value) >= 0;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return o instanceof Long && contains((long) (Long) o);
+    }
+
+    @Override
+    public Comparator<? super Long> comparator() {
+        return null;
+    }
+
+    @Override
+    public LongArraySet subSet(final Long from, final Long to) {
+        return subSet((long) from, (long) to);
+    }
+
+    public LongArraySet subSet(final long fromValue, final long toValue) {
+        if (fromValue > toValue) {
+            throw new IllegalArgumentException();
+        }
+        return new LongArraySet(elements, findRealIndex(fromValue), findRealIndex(toValue));
+    }
+
+    @Override
+    public LongArraySet headSet(final Long to) {
+        return headSet((long) to);
+    }
+
+    public LongArraySet headSet(final long toValue) {
+        return new LongArraySet(elements, from, findRealIndex(toValue));
+    }
+
+    @Override
+    public LongArraySet tailSet(final Long from) {
+        return tailSet((long) from);
+    }
+
+    public LongArraySet tailSet(final long fromValue) {
+        return new LongArraySet(elements, findRealIndex(fromValue), to);
+    }
+
+    @Override
+    public Long first() {
+        return firstLong();
+    }
+
+    @Override
+    public Long last() {
+        return lastLong();
+    }
+
+    public long firstLong() {
+        if (isEmpty())
+            throw new NoSuchElementException();
+        return elements[from];
+    }
+
+    public long lastLong() {
+        if (isEmpty())
+            throw new NoSuchElementException();
+        return elements[to - 1];
+    }
+
+    public long[] toLongArray() {
+        return Arrays.copyOfRange(elements, from, to);
+    }
+
+    private int findRealIndex(final long value) {
+        int i = Arrays.binarySearch(elements, from, to, value);
+        if (i < 0)
+            i = -i - 1;
+        return i;
+    }
+}
@@ -0,0 +1,364 @@
+package info.kgeorgiy.ja.fadeev.arrayset;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Immutable sorted set of fixed-width keys stored in a memory-mapped file.
+ * <p>
+ * Keys are either longs in natural order or byte arrays of a fixed length in unsigned lexicographic order.
+ * A file is written once by a {@link Builder} and may then be opened by any number of processes:
+ * opening only maps the file, searches read keys in place, and only returned elements are created on the heap.
+ * Byte array keys are compared by contents, but {@link #hashCode()} of such a set is identity based as of arrays.
+ * <p>
+ * Layout (big-endian): header {@code magic, version, key type, key width, count}, then sorted keys.
+ */
+public class MappedArraySet<E> extends AbstractWindowSet<E, MappedArraySet<E>> {
+    private static final int MAGIC = 0x4d415331;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    // Files are mapped in regions of whole keys, as a single buffer cannot exceed 2 GiB
+    private static final int REGION_SIZE = 1 << 30;
+
+    private final Keys<E> keys;
+
+    private MappedArraySet(Keys<E> keys, int from, int to, boolean descending) {
+        super(from, to, descending);
+        this.keys = keys;
+    }
+
+    public static MappedArraySet<Long> openLongs(Path file) throws IOException {
+        return open(file, LONGS);
+    }
+
+    public static MappedArraySet<byte[]> openBytes(Path file) throws IOException {
+        return open(file, new BytesFormat(0));
+    }
+
+    private static <E> MappedArraySet<E> open(Path file, Format<E> format) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("not a mapped set file: " + file);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            int width = header.getInt(12);
+            long count = header.getLong(16);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("not a mapped set file: " + file);
+            }
+            if (header.getInt(8) != format.type() || width <= 0 || !format.accepts(width)) {
+                throw new IOException("unexpected key type of " + file);
+            }
+            if (count < 0 || count > Integer.MAX_VALUE || size != HEADER_SIZE + count * width) {
+                throw new IOException("truncated mapped set file: " + file);
+            }
+            int perRegion = REGION_SIZE / width;
+            ByteBuffer[] regions = new ByteBuffer[(int) ((count + perRegion - 1) / perRegion)];
+            for (int i = 0; i < regions.length; i++) {
+                long start = (long) i * perRegion;
+                long length = Math.min(perRegion, count - start) * width;
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + start * width, length);
+            }
+            return new MappedArraySet<>(new Keys<>(format.withWidth(width), regions, perRegion), 0, (int) count, false);
+        }
+    }
+
+    /**
+     * Returns builder of a file of long keys, which should be added in increasing order.
+     */
+    public static Builder<Long> longBuilder(Path file) throws IOException {
+        return new Builder<>(file, LONGS);
+    }
+
+    /**
+     * Returns builder of a file of {@code width}-byte keys, which should be added in increasing order.
+     */
+    public static Builder<byte[]> bytesBuilder(Path file, int width) throws IOException {
+        if (width <= 0) {
+            throw new IllegalArgumentException("key width should be positive: " + width);
+        }
+        return new Builder<>(file, new BytesFormat(width));
+    }
+
+    @Override
+    MappedArraySet<E> window(int fromIndex, int toIndex, boolean descending) {
+        return new MappedArraySet<>(keys, fromIndex, Math.max(fromIndex, toIndex), descending);
+    }
+
+    @Override
+    E get(int i) {
+        return keys.get(i);
+    }
+
+    @Override
+    int search(E e) {
+        Objects.requireNonNull(e);
+        int lo = from;
+        int hi = to - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = keys.compare(mid, e);
+            if (c < 0) {
+                lo = mid + 1;
+            } else if (c > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    @Override
+    public Comparator<? super E> comparator() {
+        Comparator<? super E> comparator = keys.format.comparator();
+        if (descending) {
+            return comparator == null ? Collections.reverseOrder() : Collections.reverseOrder(comparator);
+        }
+        return comparator;
+    }
+
+    /**
+     * Writes keys added in increasing order into a temporary file,
+     * which replaces the target file on {@link #build()}. Repeated keys are stored once.
+     */
+    public static final class Builder<E> implements Closeable {
+        private final Path file;
+        private final Path temp;
+        private final Format<E> format;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+        private final ByteBuffer last;
+        private long count;
+
+        private Builder(Path file, Format<E> format) throws IOException {
+            this.file = file;
+            this.format = format;
+            Path parent = file.toAbsolutePath().getParent();
+            this.temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            this.channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+            this.last = ByteBuffer.allocate(format.width());
+            buffer.position(HEADER_SIZE);
+        }
+
+        /**
+         * @throws IllegalArgumentException if {@code e} is less than the previous key or has wrong width
+         */
+        public Builder<E> add(E e) throws IOException {
+            Objects.requireNonNull(e);
+            if (count > 0) {
+                int c = format.compare(last, 0, e);
+                if (c > 0) {
+                    throw new IllegalArgumentException("keys should be added in increasing order");
+                }
+                if (c == 0) {
+                    return this;
+                }
+            }
+            if (buffer.remaining() < format.width()) {
+                flush();
+            }
+            format.put(buffer, e);
+            format.put(last.clear(), e);
+            count++;
+            return this;
+        }
+
+        public Builder<E> addAll(Iterable<? extends E> keys) throws IOException {
+            for (E e : keys) {
+                add(e);
+            }
+            return this;
+        }
+
+        /**
+         * Completes the file and opens it.
+         */
+        public MappedArraySet<E> build() throws IOException {
+            if (count > Integer.MAX_VALUE) {
+                throw new IOException("too many keys: " + count);
+            }
+            flush();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(format.type()).putInt(format.width()).putLong(count).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(false);
+            channel.close();
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return open(file, format);
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Discards the file unless it was built.
+         */
+        @Override
+        public void close() throws IOException {
+            try (channel) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    // Mapped regions of whole keys
+    private static final class Keys<E> {
+        final Format<E> format;
+        private final ByteBuffer[] regions;
+        private final int perRegion;
+
+        Keys(Format<E> format, ByteBuffer[] regions, int perRegion) {
+            this.format = format;
+            this.regions = regions;
+            this.perRegion = perRegion;
+        }
+
+        E get(int i) {
+            return format.get(regions[i / perRegion], (i % perRegion) * format.width());
+        }
+
+        int compare(int i, E e) {
+            return format.compare(regions[i / perRegion], (i % perRegion) * format.width(), e);
+        }
+    }
+
+    private interface Format<E> {
+        int type();
+
+        int width();
+
+        boolean accepts(int width);
+
+        Format<E> withWidth(int width);
+
+        // Natural order is reported as null comparator
+        Comparator<? super E> comparator();
+
+        E get(ByteBuffer buffer, int offset);
+
+        int compare(ByteBuffer buffer, int offset, E e);
+
+        void put(ByteBuffer buffer, E e);
+    }
+
+    private static final Format<Long> LONGS = new Format<>() {
+        @Override
+        public int type() {
+            return 0;
+        }
+
+        @Override
+        public int width() {
+            return Long.BYTES;
+        }
+
+        @Override
+        public boolean accepts(int width) {
+            return width == Long.BYTES;
+        }
+
+        @Override
+        public Format<Long> withWidth(int width) {
+            return this;
+        }
+
+        @Override
+        public Comparator<? super Long> comparator() {
+            return null;
+        }
+
+        @Override
+        public Long get(ByteBuffer buffer, int offset) {
+            return buffer.getLong(offset);
+        }
+
+        @Override
+        public int compare(ByteBuffer buffer, int offset, Long e) {
+            return Long.compare(buffer.getLong(offset), e);
+        }
+
+        @Override
+        public void put(ByteBuffer buffer, Long e) {
+            buffer.putLong(e);
+        }
+    };
+
+    private static final class BytesFormat implements Format<byte[]> {
+        private static final Comparator<byte[]> ORDER = Arrays::compareUnsigned;
+
+        private final int width;
+
+        BytesFormat(int width) {
+            this.width = width;
+        }
+
+        @Override
+        public int type() {
+            return 1;
+        }
+
+        @Override
+        public int width() {
+            return width;
+        }
+
+        @Override
+        public boolean accepts(int width) {
+            return true;
+        }
+
+        @Override
+        public Format<byte[]> withWidth(int width) {
+            return new BytesFormat(width);
+        }
+
+        @Override
+        public Comparator<? super byte[]> comparator() {
+            return ORDER;
+        }
+
+        @Override
+        public byte[] get(ByteBuffer buffer, int offset) {
+            byte[] key = new byte[width];
+            buffer.duplicate().position(offset).get(key);
+            return key;
+        }
+
+        // Unsigned lexicographic, so keys of other lengths are still ordered consistently
+        @Override
+        public int compare(ByteBuffer buffer, int offset, byte[] e) {
+            int length = Math.min(width, e.length);
+            for (int i = 0; i < length; i++) {
+                int c = Integer.compare(buffer.get(offset + i) & 0xff, e[i] & 0xff);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return Integer.compare(width, e.length);
+        }
+
+        @Override
+        public void put(ByteBuffer buffer, byte[] e) {
+            if (e.length != width) {
+                throw new IllegalArgumentException("key should have " + width + " bytes, provided " + e.length);
+            }
+            buffer.put(e);
+        }
+    }
+}
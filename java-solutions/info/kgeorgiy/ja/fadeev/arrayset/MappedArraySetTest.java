@@ -0,0 +1,228 @@
+package info.kgeorgiy.ja.fadeev.arrayset;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@RunWith(JUnit4.class)
+public class MappedArraySetTest {
+    private static final Random random = new Random(9823457234L);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void longsTest() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            final TreeSet<Long> expected = new TreeSet<>();
+            for (int j = random.nextInt(i % 10 == 0 ? 5000 : 50); j > 0; j--) {
+                expected.add(i % 2 == 0 ? random.nextLong() : (long) random.nextInt(100) - 50);
+            }
+            if (i % 3 == 0) {
+                expected.addAll(List.of(Long.MIN_VALUE, Long.MAX_VALUE, 0L));
+            }
+            final Path file = folder.getRoot().toPath().resolve("longs" + i);
+            final MappedArraySet<Long> built;
+            try (final MappedArraySet.Builder<Long> builder = MappedArraySet.longBuilder(file)) {
+                built = builder.addAll(expected).build();
+            }
+            final List<Long> probes = new ArrayList<>(List.of(Long.MIN_VALUE, Long.MAX_VALUE, 0L));
+            for (final Long e : expected) {
+                probes.addAll(List.of(e - 1, e, e + 1));
+            }
+            checkViews(built, expected, probes, String::valueOf, 4);
+            checkViews(MappedArraySet.openLongs(file), expected, probes, String::valueOf, 4);
+        }
+    }
+
+    @Test
+    public void bytesTest() throws IOException {
+        final Comparator<byte[]> order = Arrays::compareUnsigned;
+        for (int i = 0; i < 100; i++) {
+            final int width = 1 + random.nextInt(i % 2 == 0 ? 3 : 20);
+            final TreeSet<byte[]> expected = new TreeSet<>(order);
+            for (int j = random.nextInt(i % 10 == 0 ? 3000 : 50); j > 0; j--) {
+                expected.add(randomKey(width));
+            }
+            final Path file = folder.getRoot().toPath().resolve("bytes" + i);
+            final MappedArraySet<byte[]> built;
+            try (final MappedArraySet.Builder<byte[]> builder = MappedArraySet.bytesBuilder(file, width)) {
+                built = builder.addAll(expected).build();
+            }
+            // Keys of other lengths are ordered lexicographically as well
+            final List<byte[]> probes = new ArrayList<>(List.of(new byte[0], new byte[width], new byte[width + 1]));
+            for (int j = 0; j < 100; j++) {
+                probes.add(randomKey(Math.max(0, width - 1 + random.nextInt(3))));
+            }
+            probes.addAll(expected);
+            checkViews(built, expected, probes, Arrays::toString, 4);
+            checkViews(MappedArraySet.openBytes(file), expected, probes, Arrays::toString, 4);
+        }
+    }
+
+    @Test
+    public void builderTest() throws IOException {
+        final Path file = folder.getRoot().toPath().resolve("set");
+        try (final MappedArraySet.Builder<Long> builder = MappedArraySet.longBuilder(file)) {
+            builder.add(1L).add(1L).add(5L);
+            ArraySetTest.assertThrows(IllegalArgumentException.class, () -> add(builder, 4L));
+            Assert.assertEquals(List.of(1L, 5L), new ArrayList<>(builder.add(5L).build()));
+        }
+        Assert.assertEquals(List.of(1L, 5L), new ArrayList<>(MappedArraySet.openLongs(file)));
+
+        // Unfinished builder keeps the previous file
+        try (final MappedArraySet.Builder<Long> builder = MappedArraySet.longBuilder(file)) {
+            builder.add(7L);
+        }
+        Assert.assertEquals(List.of(1L, 5L), new ArrayList<>(MappedArraySet.openLongs(file)));
+        try (final Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+            Assert.assertEquals(List.of(file), files.collect(Collectors.toList()));
+        }
+
+        try (final MappedArraySet.Builder<byte[]> builder = MappedArraySet.bytesBuilder(file, 2)) {
+            ArraySetTest.assertThrows(IllegalArgumentException.class, () -> add(builder, new byte[3]));
+        }
+        ArraySetTest.assertThrows(IllegalArgumentException.class, () -> {
+            try {
+                MappedArraySet.bytesBuilder(file, 0);
+            } catch (final IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+    }
+
+    @Test
+    public void emptyTest() throws IOException {
+        final Path file = folder.getRoot().toPath().resolve("empty");
+        try (final MappedArraySet.Builder<Long> builder = MappedArraySet.longBuilder(file)) {
+            builder.build();
+        }
+        final MappedArraySet<Long> set = MappedArraySet.openLongs(file);
+        Assert.assertTrue(set.isEmpty());
+        Assert.assertNull(set.floor(0L));
+        Assert.assertFalse(set.contains(0L));
+        ArraySetTest.assertThrows(NoSuchElementException.class, set::first);
+    }
+
+    @Test
+    public void malformedFileTest() throws IOException {
+        final Path file = folder.getRoot().toPath().resolve("set");
+        try (final MappedArraySet.Builder<Long> builder = MappedArraySet.longBuilder(file)) {
+            builder.addAll(List.of(1L, 2L, 3L)).build();
+        }
+        // Wrong key type
+        checkOpenFails(() -> MappedArraySet.openBytes(file));
+
+        final byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        checkOpenFails(() -> MappedArraySet.openLongs(file));
+        Files.write(file, Arrays.copyOf(bytes, 10));
+        checkOpenFails(() -> MappedArraySet.openLongs(file));
+        final byte[] magic = bytes.clone();
+        ByteBuffer.wrap(magic).putInt(0, 0);
+        Files.write(file, magic);
+        checkOpenFails(() -> MappedArraySet.openLongs(file));
+    }
+
+    private interface Opener {
+        void open() throws IOException;
+    }
+
+    private static void checkOpenFails(final Opener opener) {
+        try {
+            opener.open();
+            Assert.fail("IOException expected");
+        } catch (final IOException ignored) {
+        }
+    }
+
+    private static <E> void add(final MappedArraySet.Builder<E> builder, final E e) {
+        try {
+            builder.add(e);
+        } catch (final IOException ex) {
+            throw new AssertionError(ex);
+        }
+    }
+
+    private static byte[] randomKey(final int width) {
+        final byte[] key = new byte[width];
+        for (int i = 0; i < width; i++) {
+            // Few distinct bytes, including ones with the high bit, give shared prefixes
+            key[i] = (byte) (random.nextInt(4) * 0x55);
+        }
+        return key;
+    }
+
+    // Compares set with expected one, then some random view of it with the same view of expected
+    static <E> void checkViews(final NavigableSet<E> set, final NavigableSet<E> expected, final List<E> probes,
+                               final Function<E, String> show, final int depth) {
+        checkSet(set, expected, probes, show);
+        if (depth == 0 || expected.isEmpty()) {
+            return;
+        }
+        final List<E> elements = new ArrayList<>(expected);
+        final E from = elements.get(random.nextInt(elements.size()));
+        final E to = elements.get(random.nextInt(elements.size()));
+        final boolean ordered = compare(expected, from, to) <= 0;
+        final E low = ordered ? from : to;
+        final E high = ordered ? to : from;
+        final boolean lowInclusive = random.nextBoolean();
+        final boolean highInclusive = random.nextBoolean();
+        switch (random.nextInt(4)) {
+            case 0:
+                checkViews(set.descendingSet(), expected.descendingSet(), probes, show, depth - 1);
+                break;
+            case 1:
+                checkViews(set.subSet(low, lowInclusive, high, highInclusive),
+                        expected.subSet(low, lowInclusive, high, highInclusive), probes, show, depth - 1);
+                break;
+            case 2:
+                checkViews(set.headSet(high, highInclusive), expected.headSet(high, highInclusive), probes, show, depth - 1);
+                break;
+            default:
+                checkViews(set.tailSet(low, lowInclusive), expected.tailSet(low, lowInclusive), probes, show, depth - 1);
+                break;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> int compare(final NavigableSet<E> set, final E a, final E b) {
+        return set.comparator() == null ? ((Comparable<? super E>) a).compareTo(b) : set.comparator().compare(a, b);
+    }
+
+    private static <E> void checkSet(final NavigableSet<E> set, final NavigableSet<E> expected, final List<E> probes,
+                                     final Function<E, String> show) {
+        Assert.assertEquals(show(expected, show), show(set, show));
+        Assert.assertEquals(show(expected.descendingSet(), show), show(set.descendingSet(), show));
+        Assert.assertEquals(expected.size(), set.size());
+        if (!expected.isEmpty()) {
+            Assert.assertEquals(show.apply(expected.first()), show.apply(set.first()));
+            Assert.assertEquals(show.apply(expected.last()), show.apply(set.last()));
+        }
+        final Function<E, String> nullable = e -> e == null ? null : show.apply(e);
+        for (final E e : probes) {
+            final String message = show.apply(e);
+            Assert.assertEquals(message, expected.contains(e), set.contains(e));
+            Assert.assertEquals(message, nullable.apply(expected.lower(e)), nullable.apply(set.lower(e)));
+            Assert.assertEquals(message, nullable.apply(expected.floor(e)), nullable.apply(set.floor(e)));
+            Assert.assertEquals(message, nullable.apply(expected.ceiling(e)), nullable.apply(set.ceiling(e)));
+            Assert.assertEquals(message, nullable.apply(expected.higher(e)), nullable.apply(set.higher(e)));
+        }
+    }
+
+    private static <E> List<String> show(final Collection<E> set, final Function<E, String> show) {
+        return set.stream().map(show).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,192 @@
+package info.kgeorgiy.ja.fadeev.arrayset;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.*;
+
+@RunWith(JUnit4.class)
+public class PrimitiveArraySetTest {
+    private static final int MAX_VALUE = 20;
+    private static final Random random = new Random(6234572345L);
+
+    @Test
+    public void intTest() {
+        for (int i = 0; i < 2000; i++) {
+            final int[] values = randomValues(random.nextInt(40)).stream().mapToInt(Long::intValue).toArray();
+            if (i % 10 == 0 && values.length > 1) {
+                values[0] = Integer.MIN_VALUE;
+                values[1] = Integer.MAX_VALUE;
+            }
+            final TreeSet<Integer> expected = new TreeSet<>();
+            Arrays.stream(values).forEach(expected::add);
+            final List<Integer> boxed = new ArrayList<>(expected);
+            Collections.shuffle(boxed, random);
+            checkInts(new IntArraySet(values), expected, 4);
+            checkInts(new IntArraySet(boxed), expected, 4);
+        }
+    }
+
+    @Test
+    public void longTest() {
+        for (int i = 0; i < 2000; i++) {
+            final List<Long> boxed = randomValues(random.nextInt(40));
+            if (i % 10 == 0) {
+                boxed.addAll(List.of(Long.MIN_VALUE, Long.MAX_VALUE, (long) Integer.MAX_VALUE + 1));
+            }
+            final TreeSet<Long> expected = new TreeSet<>(boxed);
+            final long[] values = boxed.stream().mapToLong(Long::longValue).toArray();
+            checkLongs(new LongArraySet(values), expected, 4);
+            checkLongs(new LongArraySet(boxed), expected, 4);
+        }
+    }
+
+    @Test
+    public void wildcardTest() {
+        final Set<Integer> ints = Set.of(3, 1, 2);
+        final Collection<? extends Long> longs = List.of(3L, 1L, 2L);
+        Assert.assertArrayEquals(new int[]{1, 2, 3}, new IntArraySet(ints).toIntArray());
+        Assert.assertArrayEquals(new long[]{1, 2, 3}, new LongArraySet(longs).toLongArray());
+    }
+
+    @Test
+    public void emptyAndErrorsTest() {
+        final IntArraySet ints = new IntArraySet();
+        final LongArraySet longs = new LongArraySet();
+        Assert.assertTrue(ints.isEmpty());
+        Assert.assertTrue(longs.isEmpty());
+        ArraySetTest.assertThrows(NoSuchElementException.class, ints::firstInt);
+        ArraySetTest.assertThrows(NoSuchElementException.class, ints::last);
+        ArraySetTest.assertThrows(NoSuchElementException.class, longs::lastLong);
+        ArraySetTest.assertThrows(NoSuchElementException.class, longs::first);
+        ArraySetTest.assertThrows(NoSuchElementException.class, () -> ints.iterator().nextInt());
+        ArraySetTest.assertThrows(NoSuchElementException.class, () -> longs.iterator().nextLong());
+        ArraySetTest.assertThrows(IllegalArgumentException.class, () -> new IntArraySet(1, 2).subSet(2, 1));
+        ArraySetTest.assertThrows(IllegalArgumentException.class, () -> new LongArraySet(1, 2).subSet(2L, 1L));
+        ArraySetTest.assertThrows(UnsupportedOperationException.class, () -> new IntArraySet(1).add(2));
+        ArraySetTest.assertThrows(UnsupportedOperationException.class, () -> new LongArraySet(1).remove(1L));
+        // Boxes of the other type are not elements
+        Assert.assertFalse(new IntArraySet(1).contains(1L));
+        Assert.assertFalse(new LongArraySet(1).contains((Object) 1));
+    }
+
+    private static void checkInts(final IntArraySet set, final TreeSet<Integer> expected, final int depth) {
+        final List<Integer> elements = new ArrayList<>(expected);
+        Assert.assertEquals(elements, new ArrayList<>(set));
+        Assert.assertEquals(expected, set);
+        Assert.assertEquals(expected.hashCode(), set.hashCode());
+        Assert.assertEquals(expected.size(), set.size());
+        Assert.assertArrayEquals(elements.stream().mapToInt(Integer::intValue).toArray(), set.toIntArray());
+        final List<Integer> visited = new ArrayList<>();
+        set.forEachInt(visited::add);
+        Assert.assertEquals(elements, visited);
+        Assert.assertNull(set.comparator());
+        if (!expected.isEmpty()) {
+            Assert.assertEquals(expected.first(), set.first());
+            Assert.assertEquals(expected.last(), set.last());
+            Assert.assertEquals((int) expected.first(), set.firstInt());
+            Assert.assertEquals((int) expected.last(), set.lastInt());
+        }
+        for (int e = -MAX_VALUE - 2; e <= MAX_VALUE + 2; e++) {
+            Assert.assertEquals("element " + e, expected.contains(e), set.contains(e));
+            Assert.assertEquals("element " + e, expected.contains(e), set.contains((Object) e));
+        }
+        for (final int e : List.of(Integer.MIN_VALUE, Integer.MAX_VALUE)) {
+            Assert.assertEquals("element " + e, expected.contains(e), set.contains(e));
+        }
+        if (depth == 0 || expected.isEmpty()) {
+            return;
+        }
+        // Bounds are taken from the set, as views of TreeSet reject keys out of their range
+        final int a = elements.get(random.nextInt(elements.size())) + random.nextInt(3) - 1;
+        final int b = elements.get(random.nextInt(elements.size())) + random.nextInt(3) - 1;
+        final int low = Math.max(Math.min(a, b), expected.first());
+        final int high = Math.min(Math.max(a, b), expected.last());
+        if (low > high) {
+            return;
+        }
+        switch (random.nextInt(6)) {
+            case 0:
+                checkInts(set.subSet(low, high), new TreeSet<>(expected.subSet(low, high)), depth - 1);
+                break;
+            case 1:
+                checkInts(set.subSet((Integer) low, (Integer) high), new TreeSet<>(expected.subSet(low, high)), depth - 1);
+                break;
+            case 2:
+                checkInts(set.headSet(high), new TreeSet<>(expected.headSet(high)), depth - 1);
+                break;
+            case 3:
+                checkInts(set.headSet((Integer) high), new TreeSet<>(expected.headSet(high)), depth - 1);
+                break;
+            case 4:
+                checkInts(set.tailSet(low), new TreeSet<>(expected.tailSet(low)), depth - 1);
+                break;
+            default:
+                checkInts(set.tailSet((Integer) low), new TreeSet<>(expected.tailSet(low)), depth - 1);
+                break;
+        }
+    }
+
+    private static void checkLongs(final LongArraySet set, final TreeSet<Long> expected, final int depth) {
+        final List<Long> elements = new ArrayList<>(expected);
+        Assert.assertEquals(elements, new ArrayList<>(set));
+        Assert.assertEquals(expected, set);
+        Assert.assertEquals(expected.hashCode(), set.hashCode());
+        Assert.assertEquals(expected.size(), set.size());
+        Assert.assertArrayEquals(elements.stream().mapToLong(Long::longValue).toArray(), set.toLongArray());
+        final List<Long> visited = new ArrayList<>();
+        set.forEachLong(visited::add);
+        Assert.assertEquals(elements, visited);
+        Assert.assertNull(set.comparator());
+        if (!expected.isEmpty()) {
+            Assert.assertEquals(expected.first(), set.first());
+            Assert.assertEquals(expected.last(), set.last());
+            Assert.assertEquals((long) expected.first(), set.firstLong());
+            Assert.assertEquals((long) expected.last(), set.lastLong());
+        }
+        for (long e = -MAX_VALUE - 2; e <= MAX_VALUE + 2; e++) {
+            Assert.assertEquals("element " + e, expected.contains(e), set.contains(e));
+            Assert.assertEquals("element " + e, expected.contains(e), set.contains((Object) e));
+        }
+        for (final long e : List.of(Long.MIN_VALUE, Long.MAX_VALUE, (long) Integer.MAX_VALUE + 1)) {
+            Assert.assertEquals("element " + e, expected.contains(e), set.contains(e));
+        }
+        if (depth == 0 || expected.isEmpty()) {
+            return;
+        }
+        final long a = elements.get(random.nextInt(elements.size()));
+        final long b = elements.get(random.nextInt(elements.size()));
+        final long low = Math.min(a, b);
+        final long high = Math.max(a, b);
+        switch (random.nextInt(6)) {
+            case 0:
+                checkLongs(set.subSet(low, high), new TreeSet<>(expected.subSet(low, high)), depth - 1);
+                break;
+            case 1:
+                checkLongs(set.subSet((Long) low, (Long) high), new TreeSet<>(expected.subSet(low, high)), depth - 1);
+                break;
+            case 2:
+                checkLongs(set.headSet(high), new TreeSet<>(expected.headSet(high)), depth - 1);
+                break;
+            case 3:
+                checkLongs(set.headSet((Long) high), new TreeSet<>(expected.headSet(high)), depth - 1);
+                break;
+            case 4:
+                checkLongs(set.tailSet(low), new TreeSet<>(expected.tailSet(low)), depth - 1);
+                break;
+            default:
+                checkLongs(set.tailSet((Long) low), new TreeSet<>(expected.tailSet(low)), depth - 1);
+                break;
+        }
+    }
+
+    private static List<Long> randomValues(final int size) {
+        final List<Long> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add((long) random.nextInt(2 * MAX_VALUE + 1) - MAX_VALUE);
+        }
+        return values;
+    }
+}
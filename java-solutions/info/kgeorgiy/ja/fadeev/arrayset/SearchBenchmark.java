@@ -0,0 +1,77 @@
+package info.kgeorgiy.ja.fadeev.arrayset;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Compares {@link ArraySet#contains} and {@link ArraySet#ceiling} with and without
+ * {@link ArraySet#withSearchIndex() search index} on random integer sets.
+ * <p>
+ * Usage: {@code SearchBenchmark [size...]}, default sizes are powers of ten up to {@code 10^7}.
+ * Large sizes need a large heap, e.g. {@code -Xmx16g} for {@code 10^8}.
+ */
+public class SearchBenchmark {
+    private static final int QUERIES = 1 << 20;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        long[] sizes = args.length == 0
+                ? new long[]{1_000, 10_000, 100_000, 1_000_000, 10_000_000}
+                : Arrays.stream(args).mapToLong(Long::parseLong).toArray();
+        System.out.printf("%12s %14s %14s %14s %14s%n", "size", "contains ns", "indexed ns", "ceiling ns", "indexed ns");
+        for (long size : sizes) {
+            run((int) size);
+        }
+    }
+
+    private static void run(int size) {
+        Random random = new Random(size);
+        Integer[] values = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = random.nextInt();
+        }
+        ArraySet<Integer> plain = new ArraySet<>(Arrays.asList(values));
+        ArraySet<Integer> indexed = plain.withSearchIndex();
+        Integer[] queries = new Integer[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = random.nextBoolean() ? values[random.nextInt(size)] : random.nextInt();
+        }
+
+        double[] best = new double[4];
+        Arrays.fill(best, Double.MAX_VALUE);
+        for (int round = 0; round < ROUNDS; round++) {
+            best[0] = Math.min(best[0], contains(plain, queries));
+            best[1] = Math.min(best[1], contains(indexed, queries));
+            best[2] = Math.min(best[2], ceiling(plain, queries));
+            best[3] = Math.min(best[3], ceiling(indexed, queries));
+        }
+        System.out.printf(Locale.ROOT, "%12d %14.1f %14.1f %14.1f %14.1f%n", size, best[0], best[1], best[2], best[3]);
+    }
+
+    // Keeps results observable, so the JIT cannot drop measured loops
+    private static int sink;
+
+    private static double contains(ArraySet<Integer> set, Integer[] queries) {
+        long start = System.nanoTime();
+        int found = 0;
+        for (Integer query : queries) {
+            if (set.contains(query)) {
+                found++;
+            }
+        }
+        sink += found;
+        return (double) (System.nanoTime() - start) / queries.length;
+    }
+
+    private static double ceiling(ArraySet<Integer> set, Integer[] queries) {
+        long start = System.nanoTime();
+        int hash = 0;
+        for (Integer query : queries) {
+            Integer e = set.ceiling(query);
+            hash += e == null ? 0 : e;
+        }
+        sink += hash;
+        return (double) (System.nanoTime() - start) / queries.length;
+    }
+}
@@ -0,0 +1,73 @@
+package info.kgeorgiy.ja.fadeev.concurrent;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Compares worker and virtual thread modes of {@link ParallelMapperImpl} on a blocking load,
+ * where each element sleeps as a remote lookup would, and on a CPU-bound one.
+ * Virtual thread modes are only measured on Java 21 or later, older runtimes run worker mappers in their place.
+ * <p>
+ * Usage: {@code MapperBenchmark [elements [sleep-millis]]}, defaults are {@code 10000} elements and {@code 10} ms.
+ */
+public class MapperBenchmark {
+    private static final int ROUNDS = 3;
+    private static long sink;
+
+    public static void main(String[] args) throws InterruptedException {
+        int elements = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        long sleep = args.length > 1 ? Long.parseLong(args[1]) : 10;
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<Integer> values = IntStream.range(0, elements).boxed().collect(Collectors.toList());
+        Function<Integer, Integer> io = x -> {
+            try {
+                Thread.sleep(sleep);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return x;
+        };
+        Function<Integer, Integer> cpu = x -> {
+            int hash = x;
+            for (int i = 0; i < 100_000; i++) {
+                hash = hash * 31 + i;
+            }
+            return hash;
+        };
+
+        System.out.printf("%d cores, virtual threads %s%n", cores,
+                ParallelMapperImpl.hasVirtualThreads() ? "available" : "unavailable, limited modes use workers instead");
+        System.out.printf("%-28s %12s %12s%n", "mode", "io ms", "cpu ms");
+        run("workers x" + cores, new ParallelMapperImpl(cores), values, io, cpu);
+        run("workers x" + cores * 8, new ParallelMapperImpl(cores * 8), values, io, cpu);
+        run("virtual, limit " + cores, ParallelMapperImpl.virtualThreads(cores), values, io, cpu);
+        run("virtual, limit 1000", ParallelMapperImpl.virtualThreads(1000), values, io, cpu);
+        if (ParallelMapperImpl.hasVirtualThreads()) {
+            run("virtual, unlimited", ParallelMapperImpl.virtualThreads(), values, io, cpu);
+        }
+        System.err.println(sink);
+    }
+
+    private static void run(String name, ParallelMapperImpl mapper, List<Integer> values,
+                            Function<Integer, Integer> io, Function<Integer, Integer> cpu) throws InterruptedException {
+        try (mapper) {
+            System.out.println(String.format(Locale.ROOT, "%-28s %12.1f %12.1f",
+                    name, measure(mapper, values, io), measure(mapper, values, cpu)));
+        }
+    }
+
+    // Best wall time of a map call in milliseconds
+    private static double measure(ParallelMapperImpl mapper, List<Integer> values, Function<Integer, Integer> f)
+            throws InterruptedException {
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            sink += mapper.map(f, values).size();
+            best = Math.min(best, (System.nanoTime() - start) / 1e6);
+        }
+        return best;
+    }
+}
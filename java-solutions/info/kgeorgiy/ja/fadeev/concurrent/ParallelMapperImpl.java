@@ -3,106 +3,314 @@ package info.kgeorgiy.ja.fadeev.concurrent;
 import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+/**
+ * Work-stealing mapper: every worker has its own deque, submitted tasks are spread over the deques,
+ * a worker takes tasks from the head of its deque and, when it is empty, steals from the tails of others.
+ * Idle workers park and each submission wakes at most one of them.
+ * <p>
+ * A {@link #map} call is submitted as one job per worker; jobs claim chunks of indices
+ * sized by measured cost of an element, so cheap functions are not dominated by scheduling.
+ * <p>
+ * Mappers made by {@link #virtualThreads} have no workers and map every element on its own virtual thread
+ * instead, which suits blocking functions. Virtual threads need a Java 21 or later runtime, although sources
+ * target Java 11. On older runtimes {@link #virtualThreads()} throws {@link UnsupportedOperationException}
+ * and {@link #virtualThreads(int)} returns a worker mapper, see {@link #hasVirtualThreads()}.
+ */
 public class ParallelMapperImpl implements ParallelMapper {
-    private final List<Thread> threads;
-    private final Queue<Task> taskQueue;
+    // Chunks should take about this long, so claiming one is negligible compared to its work
+    private static final long CHUNK_NANOS = 100_000;
+    // Chunks are small enough to leave every worker this many of them for load balancing
+    private static final int CHUNKS_PER_WORKER = 4;
+    // Thread.ofVirtual().factory(), if the runtime has virtual threads
+    private static final ThreadFactory VIRTUAL_THREADS = virtualThreadFactory();
+    // Workers of a limited virtual thread mapper on a runtime without virtual threads
+    private static final int MAX_PLATFORM_THREADS = 256;
+
+    private final List<Worker> workers;
+    private final Queue<Worker> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger next = new AtomicInteger();
+    // Per element thread mode
+    private final ThreadFactory threadFactory;
+    private final int concurrency;
+    private final Set<Thread> running = ConcurrentHashMap.newKeySet();
 
     public ParallelMapperImpl(int threadsNumber) {
-        taskQueue = new ArrayDeque<>();
-        threads = Stream.generate(MapperThread::new).limit(threadsNumber).collect(Collectors.toList());
+        workers = Stream.generate(Worker::new).limit(threadsNumber).collect(Collectors.toList());
+        threadFactory = null;
+        concurrency = threadsNumber;
+        workers.forEach(Thread::start);
+    }
+
+    private ParallelMapperImpl(ThreadFactory threadFactory, int concurrency) {
+        this.workers = List.of();
+        this.threadFactory = threadFactory;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Returns mapper running each element on its own virtual thread, without limit of concurrently mapped elements.
+     * Requires Java 21 or later.
+     *
+     * @throws UnsupportedOperationException if the runtime has no virtual threads
+     */
+    public static ParallelMapperImpl virtualThreads() {
+        if (VIRTUAL_THREADS == null) {
+            throw new UnsupportedOperationException("virtual threads are not available, a concurrency limit is required");
+        }
+        return new ParallelMapperImpl(VIRTUAL_THREADS, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns mapper running each element on its own virtual thread,
+     * with at most {@code concurrencyLimit} elements of one call mapped at a time.
+     * Virtual threads need Java 21 or later, on older runtimes the result is a worker mapper
+     * with {@code min(concurrencyLimit, }{@value #MAX_PLATFORM_THREADS}{@code )} platform threads.
+     */
+    public static ParallelMapperImpl virtualThreads(int concurrencyLimit) {
+        if (concurrencyLimit < 1) {
+            throw new IllegalArgumentException("concurrency limit should be positive: " + concurrencyLimit);
+        }
+        return VIRTUAL_THREADS != null
+                ? new ParallelMapperImpl(VIRTUAL_THREADS, concurrencyLimit)
+                : new ParallelMapperImpl(Math.min(concurrencyLimit, MAX_PLATFORM_THREADS));
+    }
+
+    /**
+     * Returns whether the runtime has virtual threads, so {@link #virtualThreads} mappers use them.
+     */
+    public static boolean hasVirtualThreads() {
+        return VIRTUAL_THREADS != null;
     }
 
-    private class MapperThread extends Thread {
-        public MapperThread() {
-            this.start();
+    // Sources target Java 11, so Java 21 API is looked up reflectively
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return null;
         }
+    }
+
+    private class Worker extends Thread {
+        private final Deque<Runnable> tasks = new ConcurrentLinkedDeque<>();
+        private final AtomicBoolean parked = new AtomicBoolean();
 
         @Override
         public void run() {
-            try {
-                while (!Thread.interrupted()) {
-                    Task task;
-                    synchronized (taskQueue) {
-                        while (taskQueue.isEmpty()) {
-                            taskQueue.wait();
-                        }
-                        task = taskQueue.poll();
-                    }
+            while (!Thread.interrupted()) {
+                Runnable task = tasks.pollFirst();
+                if (task == null) {
+                    task = steal();
+                }
+                if (task != null) {
+                    unannounce();
                     task.run();
-                    synchronized (task.counter) {
-                        task.counter.assertTaskDone();
-                        if (task.counter.isCompleted()) {
-                            task.counter.notify();
-                        }
+                    continue;
+                }
+                // Announces itself before the final check, so a task submitted after the check gets a wakeup
+                if (parked.compareAndSet(false, true)) {
+                    idle.add(this);
+                }
+                if (hasTasks()) {
+                    unannounce();
+                    continue;
+                }
+                LockSupport.park(this);
+            }
+            Thread.currentThread().interrupt();
+        }
+
+        // Leaves idle queue after a spurious wakeup or a successful final check, so wakeups go to idle workers
+        private void unannounce() {
+            if (parked.get() && idle.remove(this)) {
+                parked.set(false);
+            }
+        }
+
+        private Runnable steal() {
+            int size = workers.size();
+            int start = ThreadLocalRandom.current().nextInt(size);
+            for (int i = 0; i < size; i++) {
+                Worker victim = workers.get((start + i) % size);
+                if (victim != this) {
+                    Runnable task = victim.tasks.pollLast();
+                    if (task != null) {
+                        return task;
                     }
                 }
-            } catch (InterruptedException ignored) {
-            } finally {
-                Thread.currentThread().interrupt();
             }
+            return null;
         }
     }
 
-    private static class Task {
-        private final Runnable runnable;
-        private final Counter counter;
+    private boolean hasTasks() {
+        return workers.stream().anyMatch(worker -> !worker.tasks.isEmpty());
+    }
 
-        Task(Runnable runnable, Counter counter) {
-            this.runnable = runnable;
-            this.counter = counter;
+    private void submit(Runnable task) {
+        workers.get(Math.floorMod(next.getAndIncrement(), workers.size())).tasks.addLast(task);
+        Worker worker = idle.poll();
+        if (worker != null) {
+            worker.parked.set(false);
+            LockSupport.unpark(worker);
         }
+    }
 
-        public void run() {
-            this.runnable.run();
+    // Maps args into results: every run claims chunks of indices from a shared cursor until none are left.
+    // The worker finishing the last chunk completes the future.
+    private static class Job<T, R> implements Runnable {
+        private final Function<? super T, ? extends R> f;
+        private final List<? extends T> args;
+        private final Object[] results;
+        private final int parallelism;
+        private final boolean chunked;
+        private final AtomicInteger cursor = new AtomicInteger();
+        private final AtomicInteger remaining;
+        private final CompletableFuture<List<R>> future = new CompletableFuture<>();
+        // Errors are caught too, so the worker survives and the future still completes
+        private volatile Throwable exception;
+        // Smoothed time of one element, negative until the first chunk is done
+        private volatile long elementNanos = -1;
+
+        Job(Function<? super T, ? extends R> f, List<? extends T> args, int parallelism, boolean chunked) {
+            this.f = f;
+            this.args = args;
+            this.results = new Object[args.size()];
+            this.parallelism = parallelism;
+            this.chunked = chunked;
+            this.remaining = new AtomicInteger(args.size());
+            // Unclaimed chunks are dropped, chunks being mapped are finished and ignored
+            future.whenComplete((result, e) -> {
+                if (future.isCancelled()) {
+                    cursor.set(results.length);
+                }
+            });
+            if (results.length == 0) {
+                future.complete(List.of());
+            }
         }
-    }
 
-    private static class Counter {
-        private int counter;
+        @Override
+        public void run() {
+            while (true) {
+                int size = chunkSize();
+                int from = cursor.getAndAdd(size);
+                if (from >= results.length) {
+                    return;
+                }
+                int to = Math.min(results.length, from + size);
+                long start = System.nanoTime();
+                for (int i = from; i < to; i++) {
+                    try {
+                        results[i] = f.apply(args.get(i));
+                    } catch (Throwable e) {
+                        if (exception == null) {
+                            exception = e;
+                        }
+                    }
+                }
+                long nanos = (System.nanoTime() - start) / (to - from);
+                elementNanos = elementNanos < 0 ? nanos : (3 * elementNanos + nanos) / 4;
+                if (remaining.addAndGet(from - to) == 0) {
+                    complete();
+                }
+            }
+        }
 
-        Counter(int counter) {
-            this.counter = counter;
+        @SuppressWarnings("unchecked")
+        private void complete() {
+            if (exception != null) {
+                future.completeExceptionally(exception);
+            } else {
+                future.complete((List<R>) Arrays.asList(results));
+            }
         }
 
-        public void assertTaskDone() {
-            counter--;
+        // Single elements until cost is known, so an expensive function does not serialize a big chunk
+        private int chunkSize() {
+            long nanos = elementNanos;
+            if (!chunked || nanos < 0) {
+                return 1;
+            }
+            long byCost = CHUNK_NANOS / Math.max(1, nanos);
+            long byBalance = (results.length - cursor.get()) / ((long) parallelism * CHUNKS_PER_WORKER);
+            return (int) Math.max(1, Math.min(byCost, byBalance));
         }
+    }
 
-        public boolean isCompleted() {
-            return counter <= 0;
+    /**
+     * Maps function {@code f} over {@code args} without blocking. The returned future completes
+     * on the worker that maps the last element, so its dependent actions run on that worker, and completes
+     * exceptionally with the first exception thrown by {@code f}. Cancelling it stops mapping of the elements
+     * not started yet.
+     */
+    public <T, R> CompletableFuture<List<R>> mapAsync(Function<? super T, ? extends R> f, List<? extends T> args) {
+        Job<T, R> job = new Job<>(f, args, concurrency, threadFactory == null);
+        for (int i = Math.min(concurrency, args.size()); i > 0; i--) {
+            if (threadFactory == null) {
+                submit(job);
+            } else {
+                start(job);
+            }
         }
+        return job.future;
     }
 
+    // Runs job on a new thread, which maps elements one by one while there are unclaimed ones
+    private void start(Runnable job) {
+        Thread thread = threadFactory.newThread(() -> {
+            try {
+                job.run();
+            } finally {
+                running.remove(Thread.currentThread());
+            }
+        });
+        running.add(thread);
+        thread.start();
+    }
+
+    /**
+     * {@inheritDoc}
+     * If the calling thread is interrupted, mapping of the elements not started yet is cancelled.
+     */
     @Override
     public <T, R> List<R> map(Function<? super T, ? extends R> f, List<? extends T> args) throws InterruptedException {
-        int n = args.size();
-        List<R> answer = new ArrayList<>(Collections.nCopies(n, null));
-        final Counter counter = new Counter(n);
-        Task task = new Task(null, counter);
-        for (int i = 0; i < n; i++) {
-            int finalI = i;
-            task = new Task(() -> answer.set(finalI, f.apply(args.get(finalI))), counter);
-            synchronized (taskQueue) {
-                taskQueue.add(task);
-                taskQueue.notifyAll();
+        CompletableFuture<List<R>> future = mapAsync(f, args);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
-        }
-
-        synchronized (task.counter) {
-            while (!counter.isCompleted()) {
-                counter.wait();
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
             }
+            throw new IllegalStateException(e.getCause());
         }
-        return answer;
     }
 
     @Override
     public void close() {
-        threads.forEach(Thread::interrupt);
+        workers.forEach(Thread::interrupt);
+        running.forEach(Thread::interrupt);
     }
 
 }
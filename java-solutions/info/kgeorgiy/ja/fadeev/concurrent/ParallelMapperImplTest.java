@@ -0,0 +1,364 @@
+package info.kgeorgiy.ja.fadeev.concurrent;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@RunWith(JUnit4.class)
+public class ParallelMapperImplTest {
+    private static final Random random = new Random(2345723457L);
+
+    @Test(timeout = 60_000)
+    public void orderTest() throws InterruptedException {
+        for (final int threads : new int[]{1, 2, 8}) {
+            try (final ParallelMapperImpl mapper = new ParallelMapperImpl(threads)) {
+                for (final int size : new int[]{0, 1, 7, 1000, 100_000}) {
+                    checkMap(mapper, x -> x * 31 + 7, randomList(size));
+                }
+                // Elements finish in random order
+                checkMap(mapper, x -> {
+                    sleep(random.nextInt(3));
+                    return -x;
+                }, randomList(200));
+            }
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void concurrentCallsTest() throws InterruptedException {
+        try (final ParallelMapperImpl mapper = new ParallelMapperImpl(4)) {
+            final List<Thread> callers = new ArrayList<>();
+            final AtomicInteger failures = new AtomicInteger();
+            for (int i = 0; i < 8; i++) {
+                final List<Integer> list = randomList(10_000 * (i + 1));
+                final int multiplier = i;
+                callers.add(new Thread(() -> {
+                    try {
+                        for (int j = 0; j < 10; j++) {
+                            if (!expected(x -> x * multiplier, list).equals(mapper.map(x -> x * multiplier, list))) {
+                                failures.incrementAndGet();
+                            }
+                        }
+                    } catch (final InterruptedException e) {
+                        failures.incrementAndGet();
+                    }
+                }));
+            }
+            callers.forEach(Thread::start);
+            for (final Thread caller : callers) {
+                caller.join();
+            }
+            Assert.assertEquals(0, failures.get());
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void runtimeExceptionTest() throws InterruptedException {
+        try (final ParallelMapperImpl mapper = new ParallelMapperImpl(3)) {
+            final IllegalStateException exception = new IllegalStateException("test");
+            try {
+                mapper.map(x -> {
+                    if (x == 500) {
+                        throw exception;
+                    }
+                    return x;
+                }, IntStream.range(0, 1000).boxed().collect(Collectors.toList()));
+                Assert.fail("exception expected");
+            } catch (final IllegalStateException e) {
+                Assert.assertSame(exception, e);
+            }
+            checkMap(mapper, x -> x + 1, randomList(1000));
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void errorTest() throws InterruptedException {
+        // A single worker, so the mapper is usable afterwards only if the Error did not kill it
+        try (final ParallelMapperImpl mapper = new ParallelMapperImpl(1)) {
+            final Error error = new Error("test");
+            try {
+                mapper.map(x -> {
+                    if (x == 3) {
+                        throw error;
+                    }
+                    return x;
+                }, List.of(1, 2, 3, 4, 5));
+                Assert.fail("error expected");
+            } catch (final Error e) {
+                Assert.assertSame(error, e);
+            }
+            checkMap(mapper, x -> x + 1, randomList(1000));
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void closeTest() throws InterruptedException {
+        final ParallelMapperImpl mapper = new ParallelMapperImpl(2);
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch interrupted = new CountDownLatch(2);
+        final Thread caller = new Thread(() -> {
+            try {
+                mapper.map(x -> {
+                    started.countDown();
+                    try {
+                        Thread.sleep(TimeUnit.MINUTES.toMillis(10));
+                    } catch (final InterruptedException e) {
+                        interrupted.countDown();
+                    }
+                    return x;
+                }, List.of(1, 2));
+            } catch (final InterruptedException ignored) {
+            }
+        });
+        caller.setDaemon(true);
+        caller.start();
+        started.await();
+        mapper.close();
+        interrupted.await();
+        caller.interrupt();
+        caller.join();
+    }
+
+    @Test(timeout = 60_000)
+    public void interruptTest() throws InterruptedException {
+        try (final ParallelMapperImpl mapper = new ParallelMapperImpl(1)) {
+            final AtomicInteger applied = new AtomicInteger();
+            final CountDownLatch started = new CountDownLatch(1);
+            final AtomicInteger result = new AtomicInteger();
+            final Thread caller = new Thread(() -> {
+                try {
+                    mapper.map(x -> {
+                        started.countDown();
+                        applied.incrementAndGet();
+                        sleep(20);
+                        return x;
+                    }, randomList(1000));
+                    result.set(1);
+                } catch (final InterruptedException e) {
+                    result.set(2);
+                }
+            });
+            caller.start();
+            started.await();
+            caller.interrupt();
+            caller.join();
+            Assert.assertEquals("map should throw InterruptedException", 2, result.get());
+            // Elements not started by the interruption are dropped
+            Thread.sleep(200);
+            Assert.assertTrue("applied " + applied.get(), applied.get() < 1000);
+            checkMap(mapper, x -> x + 1, randomList(100));
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void chunkedTest() throws InterruptedException {
+        try (final ParallelMapperImpl mapper = new ParallelMapperImpl(4)) {
+            for (final int size : new int[]{2, 3, 5, 17, 1_000_000}) {
+                final List<Integer> list = IntStream.range(0, size).boxed().collect(Collectors.toList());
+                final AtomicIntegerArray applied = new AtomicIntegerArray(size);
+                final List<Integer> result = mapper.map(x -> {
+                    applied.incrementAndGet(x);
+                    return x * 2;
+                }, list);
+                Assert.assertEquals(expected(x -> x * 2, list), result);
+                for (int i = 0; i < size; i++) {
+                    Assert.assertEquals("applications of " + i, 1, applied.get(i));
+                }
+            }
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void changingCostTest() throws InterruptedException {
+        // Chunk size is learned on cheap elements, then expensive ones follow
+        try (final ParallelMapperImpl mapper = new ParallelMapperImpl(2)) {
+            final List<Integer> list = IntStream.range(0, 20_000).boxed().collect(Collectors.toList());
+            checkMap(mapper, x -> {
+                if (x >= 19_900) {
+                    sleep(1);
+                }
+                return x + 1;
+            }, list);
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void mapAsyncTest() throws InterruptedException, ExecutionException {
+        try (final ParallelMapperImpl mapper = new ParallelMapperImpl(3)) {
+            final List<Integer> list = randomList(10_000);
+            Assert.assertEquals(expected(x -> x ^ 5, list), mapper.mapAsync(x -> x ^ 5, list).get());
+            Assert.assertEquals(
+                    expected(x -> x + 1, list).stream().mapToLong(x -> x).sum(),
+                    (long) mapper.mapAsync(x -> x + 1, list)
+                            .thenApply(result -> result.stream().mapToLong(x -> x).sum())
+                            .get()
+            );
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void mapAsyncEmptyTest() {
+        try (final ParallelMapperImpl mapper = new ParallelMapperImpl(2)) {
+            final CompletableFuture<List<Integer>> future = mapper.mapAsync(x -> x, List.<Integer>of());
+            Assert.assertTrue(future.isDone());
+            Assert.assertEquals(List.of(), future.join());
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void mapAsyncExceptionTest() throws InterruptedException {
+        try (final ParallelMapperImpl mapper = new ParallelMapperImpl(2)) {
+            final List<Throwable> failures = List.of(new IllegalArgumentException("test"), new AssertionError("test"));
+            for (final Throwable failure : failures) {
+                final CompletableFuture<List<Integer>> future = mapper.mapAsync(x -> {
+                    if (x == 50) {
+                        if (failure instanceof Error) {
+                            throw (Error) failure;
+                        }
+                        throw (RuntimeException) failure;
+                    }
+                    return x;
+                }, IntStream.range(0, 100).boxed().collect(Collectors.toList()));
+                try {
+                    future.get();
+                    Assert.fail("exception expected");
+                } catch (final ExecutionException e) {
+                    Assert.assertSame(failure, e.getCause());
+                }
+                Assert.assertTrue(future.isCompletedExceptionally());
+            }
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void mapAsyncCancelTest() throws InterruptedException {
+        try (final ParallelMapperImpl mapper = new ParallelMapperImpl(1)) {
+            final AtomicInteger applied = new AtomicInteger();
+            final CountDownLatch started = new CountDownLatch(1);
+            final CompletableFuture<List<Integer>> future = mapper.mapAsync(x -> {
+                started.countDown();
+                applied.incrementAndGet();
+                sleep(20);
+                return x;
+            }, randomList(1000));
+            started.await();
+            Assert.assertTrue(future.cancel(false));
+            Assert.assertTrue(future.isCancelled());
+            // Elements not started by the cancellation are dropped
+            Thread.sleep(200);
+            final int stopped = applied.get();
+            Assert.assertTrue("applied " + stopped, stopped < 1000);
+            Thread.sleep(200);
+            Assert.assertEquals(stopped, applied.get());
+            checkMap(mapper, x -> x + 1, randomList(100));
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void virtualThreadsTest() throws InterruptedException {
+        for (final int limit : new int[]{1, 4, 1000, Integer.MAX_VALUE}) {
+            try (final ParallelMapperImpl mapper = ParallelMapperImpl.virtualThreads(limit)) {
+                checkMap(mapper, x -> x * 3, randomList(10_000));
+                checkMap(mapper, x -> {
+                    sleep(random.nextInt(3));
+                    return -x;
+                }, randomList(200));
+            }
+        }
+        try {
+            ParallelMapperImpl.virtualThreads(0).close();
+            Assert.fail("exception expected");
+        } catch (final IllegalArgumentException ignored) {
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void unlimitedVirtualThreadsTest() throws InterruptedException {
+        if (!ParallelMapperImpl.hasVirtualThreads()) {
+            try {
+                ParallelMapperImpl.virtualThreads().close();
+                Assert.fail("exception expected");
+            } catch (final UnsupportedOperationException ignored) {
+            }
+            return;
+        }
+        try (final ParallelMapperImpl mapper = ParallelMapperImpl.virtualThreads()) {
+            checkMap(mapper, x -> x * 3, randomList(10_000));
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void virtualThreadsUsedTest() throws InterruptedException, ReflectiveOperationException {
+        // Needs a Java 21 runtime, sources target Java 11 so Thread.isVirtual is looked up reflectively
+        Assume.assumeTrue(ParallelMapperImpl.hasVirtualThreads());
+        final Method isVirtual = Thread.class.getMethod("isVirtual");
+        for (final ParallelMapperImpl mapper : List.of(ParallelMapperImpl.virtualThreads(), ParallelMapperImpl.virtualThreads(4))) {
+            try (mapper) {
+                final List<Boolean> virtual = mapper.map(x -> {
+                    try {
+                        return (Boolean) isVirtual.invoke(Thread.currentThread());
+                    } catch (final ReflectiveOperationException e) {
+                        throw new AssertionError(e);
+                    }
+                }, randomList(100));
+                Assert.assertFalse(virtual.contains(false));
+            }
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void virtualThreadsBlockingTest() throws InterruptedException {
+        // Far more blocked elements than platform threads would be started for
+        Assume.assumeTrue(ParallelMapperImpl.hasVirtualThreads());
+        try (final ParallelMapperImpl mapper = ParallelMapperImpl.virtualThreads()) {
+            final List<Integer> list = randomList(2000);
+            final CountDownLatch all = new CountDownLatch(list.size());
+            Assert.assertEquals(list, mapper.map(x -> {
+                all.countDown();
+                try {
+                    Assert.assertTrue(all.await(30, TimeUnit.SECONDS));
+                } catch (final InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                return x;
+            }, list));
+        }
+    }
+
+    private static void checkMap(final ParallelMapperImpl mapper, final Function<Integer, Integer> f, final List<Integer> list)
+            throws InterruptedException {
+        Assert.assertEquals(expected(f, list), mapper.map(f, list));
+    }
+
+    private static List<Integer> expected(final Function<Integer, Integer> f, final List<Integer> list) {
+        return list.stream().map(f).collect(Collectors.toList());
+    }
+
+    static List<Integer> randomList(final int size) {
+        return random.ints(size).boxed().collect(Collectors.toList());
+    }
+
+    static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
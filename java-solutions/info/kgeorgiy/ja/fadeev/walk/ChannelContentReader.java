@@ -0,0 +1,88 @@
+package info.kgeorgiy.ja.fadeev.walk;
+
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Reads files through {@link FileChannel}: large files are memory-mapped region by region,
+ * small ones are read into a direct buffer reused by the calling thread.
+ * <p>
+ * A mapping is released only when its buffer is garbage collected, not when the file is read,
+ * so at most {@link #DEFAULT_MAX_MAPPED} bytes of all readers are mapped at a time
+ * and regions beyond that are read into the buffer instead.
+ */
+public class ChannelContentReader implements ContentReader {
+    public static final long DEFAULT_MAP_THRESHOLD = 1 << 20;
+    public static final long DEFAULT_MAX_MAPPED = 1L << 30;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long REGION_SIZE = 64 << 20;
+    private static final ThreadLocal<ByteBuffer> BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+    // Bytes mapped and not collected yet, decreased by the cleaner when a mapped buffer becomes unreachable
+    private static final AtomicLong MAPPED = new AtomicLong();
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final long mapThreshold;
+    private final long maxMapped;
+
+    public ChannelContentReader() {
+        this(DEFAULT_MAP_THRESHOLD);
+    }
+
+    public ChannelContentReader(final long mapThreshold) {
+        this(mapThreshold, DEFAULT_MAX_MAPPED);
+    }
+
+    ChannelContentReader(final long mapThreshold, final long maxMapped) {
+        this.mapThreshold = mapThreshold;
+        this.maxMapped = maxMapped;
+    }
+
+    @Override
+    public long read(final Path path, final Consumer<ByteBuffer> consumer) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            return size >= mapThreshold ? map(channel, size, consumer) : read(channel, consumer);
+        }
+    }
+
+    private long map(final FileChannel channel, final long size, final Consumer<ByteBuffer> consumer) throws IOException {
+        for (long position = 0; position < size; position += REGION_SIZE) {
+            final long length = Math.min(REGION_SIZE, size - position);
+            if (MAPPED.addAndGet(length) > maxMapped) {
+                MAPPED.addAndGet(-length);
+                return position + read(channel.position(position), consumer);
+            }
+            final MappedByteBuffer region;
+            try {
+                region = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            } catch (final IOException | RuntimeException e) {
+                MAPPED.addAndGet(-length);
+                throw e;
+            }
+            CLEANER.register(region, () -> MAPPED.addAndGet(-length));
+            consumer.accept(region);
+        }
+        // File may grow after size was taken
+        return size + read(channel.position(size), consumer);
+    }
+
+    private static long read(final FileChannel channel, final Consumer<ByteBuffer> consumer) throws IOException {
+        final ByteBuffer buffer = BUFFER.get();
+        long total = 0;
+        int c;
+        while ((c = channel.read(buffer.clear())) >= 0) {
+            if (c > 0) {
+                consumer.accept(buffer.flip());
+                total += c;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,19 @@
+package info.kgeorgiy.ja.fadeev.walk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Strategy of reading file contents for hashing.
+ * Implementations may reuse buffers, so consumers should not keep them after returning.
+ */
+public interface ContentReader {
+    /**
+     * Passes contents of {@code path} to {@code consumer} as a sequence of buffers.
+     *
+     * @return number of bytes read
+     */
+    long read(Path path, Consumer<ByteBuffer> consumer) throws IOException;
+}
@@ -0,0 +1,87 @@
+package info.kgeorgiy.ja.fadeev.walk;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+@RunWith(JUnit4.class)
+public class ContentReaderTest {
+    private static final int BUFFER = 64 * 1024;
+    private static final int MAP_THRESHOLD = 1 << 20;
+    private static final int[] SIZES = {
+            0, 1, 7, 1023, 1024, 1025,
+            BUFFER - 1, BUFFER, BUFFER + 1, 3 * BUFFER + 17,
+            MAP_THRESHOLD - 1, MAP_THRESHOLD, MAP_THRESHOLD + 1, 5 * MAP_THRESHOLD + 3
+    };
+    private static final Random random = new Random(5723458723L);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sameHashesTest() throws IOException {
+        final List<ContentReader> readers = List.of(
+                new StreamContentReader(),
+                new ChannelContentReader(),
+                // Everything mapped, nothing mapped
+                new ChannelContentReader(0),
+                new ChannelContentReader(Long.MAX_VALUE),
+                // Mapping refused by the limit of mapped bytes
+                new ChannelContentReader(0, 0)
+        );
+        for (final int size : SIZES) {
+            final Path file = file(size);
+            final long expected = streamHash(file);
+            for (final ContentReader reader : readers) {
+                final String message = reader.getClass().getSimpleName() + ", size " + size;
+                final PjwHash hash = new PjwHash();
+                Assert.assertEquals(message, size, reader.read(file, hash::update));
+                Assert.assertEquals(message, expected, hash.getValue());
+                Assert.assertEquals(message, expected, Walk.calculateHash(file, reader));
+            }
+        }
+    }
+
+    @Test
+    public void missingFileTest() {
+        final Path missing = folder.getRoot().toPath().resolve("missing");
+        Assert.assertEquals(0, Walk.calculateHash(missing, new StreamContentReader()));
+        Assert.assertEquals(0, Walk.calculateHash(missing, new ChannelContentReader()));
+    }
+
+    private Path file(final int size) throws IOException {
+        final byte[] content = new byte[size];
+        random.nextBytes(content);
+        return Files.write(folder.getRoot().toPath().resolve("file" + size), content);
+    }
+
+    // PJW loop over an InputStream as Walk computed it before pluggable readers
+    private static long streamHash(final Path path) throws IOException {
+        try (final InputStream inputStream = Files.newInputStream(path)) {
+            final byte[] b = new byte[1024];
+            int c;
+            long hash = 0;
+            while ((c = inputStream.read(b)) >= 0) {
+                for (int i = 0; i < c; i++) {
+                    hash = (hash << 8) + (b[i] & 0xff);
+                    final long high = hash & 0xff00_0000_0000_0000L;
+                    if (high != 0) {
+                        hash ^= high >> 48;
+                        hash &= ~high;
+                    }
+                }
+            }
+            return hash;
+        }
+    }
+}
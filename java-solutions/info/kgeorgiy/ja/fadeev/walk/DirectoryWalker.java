@@ -0,0 +1,140 @@
+package info.kgeorgiy.ja.fadeev.walk;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lists directory trees on a fork/join pool and passes tasks hashing runs of their files to a sink in listing order.
+ * Listing of a directory forks listings of its subdirectories, so a tree is listed in parallel ahead of the sink,
+ * by at most {@link #LOOKAHEAD} entries per tree. With an {@link OrderedPipeline} behind the sink listing and hashing
+ * of a tree overlap and only the lookahead and the pipeline window are held. Results follow directory listing
+ * order with subdirectories expanded in place, symbolic links to directories are hashed as files.
+ * Safe for concurrent use.
+ */
+class DirectoryWalker implements AutoCloseable {
+    private static final int FILES_PER_TASK = 16;
+    // Entries listed but not passed to a sink yet, further subdirectories are listed when the sink reaches them
+    private static final int LOOKAHEAD = 1 << 16;
+
+    private final EntryHasher hasher;
+    private final ForkJoinPool pool;
+
+    DirectoryWalker(final EntryHasher hasher, final int threads) {
+        this.hasher = hasher;
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    void walk(final Path directory, final EntryHasher.TaskSink sink) throws InterruptedException {
+        pass(new Listing(directory, new AtomicInteger(LOOKAHEAD)), sink);
+    }
+
+    // Waits for the listing, or makes it if it was not started ahead, then passes it to the sink
+    private void pass(final Listing listing, final EntryHasher.TaskSink sink) throws InterruptedException {
+        if (listing.ahead) {
+            try {
+                listing.get();
+            } catch (final ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+            }
+        } else {
+            listing.invoke();
+        }
+        for (final Object part : listing.parts) {
+            if (part instanceof Listing) {
+                listing.lookahead.incrementAndGet();
+                pass((Listing) part, sink);
+            } else {
+                @SuppressWarnings("unchecked") final List<Path> files = (List<Path>) part;
+                listing.lookahead.addAndGet(files.size());
+                sink.submit(() -> {
+                    final List<HashResult> results = new ArrayList<>(files.size());
+                    for (final Path file : files) {
+                        results.add(hasher.hashFile(file));
+                    }
+                    return results;
+                });
+            }
+        }
+        if (listing.failed) {
+            sink.submit(() -> List.of(hasher.failed(listing.directory.toString())));
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Lists one directory into runs of files and listings of subdirectories,
+     * forking the latter while the lookahead allows.
+     */
+    private final class Listing extends RecursiveAction {
+        private static final long serialVersionUID = 4139520583712350147L;
+
+        private final Path directory;
+        // Shared by listings of a tree
+        private final AtomicInteger lookahead;
+        // Runs of files as List<Path> and Listing of subdirectories, in listing order
+        private final List<Object> parts = new ArrayList<>();
+        // Entries listed before a failure are kept, the directory is reported after them
+        private boolean failed;
+        // Whether the listing was submitted to the pool, otherwise the sink makes it when it reaches it
+        private boolean ahead;
+
+        Listing(final Path directory, final AtomicInteger lookahead) {
+            this.directory = directory;
+            this.lookahead = lookahead;
+        }
+
+        @Override
+        protected void compute() {
+            List<Path> files = new ArrayList<>();
+            try (final DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (final Path entry : stream) {
+                    lookahead.decrementAndGet();
+                    if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                        files = flush(files);
+                        final Listing subdirectory = new Listing(entry, lookahead);
+                        parts.add(subdirectory);
+                        if (lookahead.get() > 0) {
+                            subdirectory.ahead = true;
+                            pool.execute(subdirectory);
+                        }
+                    } else {
+                        files.add(entry);
+                        if (files.size() == FILES_PER_TASK) {
+                            files = flush(files);
+                        }
+                    }
+                }
+            } catch (final IOException | DirectoryIteratorException e) {
+                failed = true;
+            }
+            flush(files);
+        }
+
+        // Returns list for the next run of files
+        private List<Path> flush(final List<Path> files) {
+            if (files.isEmpty()) {
+                return files;
+            }
+            parts.add(files);
+            return new ArrayList<>();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package info.kgeorgiy.ja.fadeev.walk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+/**
+ * Finds groups of identical files among input entries.
+ * Files are grouped by size first, only sizes shared by several files are hashed:
+ * by the first {@value #PREFIX_SIZE} bytes, then, for files still colliding, by full contents.
+ */
+class DuplicateFinder {
+    private static final int PREFIX_SIZE = 4096;
+
+    private final WalkOptions options;
+    private final EntryHasher hasher;
+    private final HashAlgorithm algorithm;
+    private final Map<Long, List<Path>> bySize = new HashMap<>();
+    private final Set<Path> seen = new HashSet<>();
+
+    DuplicateFinder(final WalkOptions options, final EntryHasher hasher) {
+        this.options = options;
+        this.hasher = hasher;
+        this.algorithm = options.getAlgorithm();
+    }
+
+    /**
+     * Adds file named by input {@code line}, or all files of a directory in recursive mode.
+     * Invalid and unreadable entries are skipped.
+     */
+    void add(final String line) throws IOException {
+        final Path path;
+        try {
+            path = Path.of(line);
+        } catch (final InvalidPathException e) {
+            return;
+        }
+        if (options.isRecursive() && Files.isDirectory(path)) {
+            Files.walkFileTree(path, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) {
+                    add(file, attributes);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(final Path file, final IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } else {
+            try {
+                add(path, Files.readAttributes(path, BasicFileAttributes.class));
+            } catch (final IOException ignored) {
+            }
+        }
+    }
+
+    private void add(final Path path, final BasicFileAttributes attributes) {
+        if (attributes.isRegularFile() && seen.add(path.toAbsolutePath().normalize())) {
+            bySize.computeIfAbsent(attributes.size(), size -> new ArrayList<>()).add(path);
+        }
+    }
+
+    /**
+     * Returns groups of identical files, largest files first, files of a group in input order.
+     */
+    List<List<HashResult>> find() throws InterruptedException {
+        final List<Long> sizes = new ArrayList<>(bySize.keySet());
+        sizes.sort(Comparator.reverseOrder());
+        final List<List<HashResult>> groups = new ArrayList<>();
+        for (final long size : sizes) {
+            final List<Path> candidates = bySize.get(size);
+            if (candidates.size() < 2) {
+                continue;
+            }
+            if (size <= PREFIX_SIZE) {
+                groups.addAll(group(candidates, hasher::hash));
+            } else {
+                for (final List<HashResult> prefixGroup : group(candidates, this::prefixHash)) {
+                    final List<Path> paths = new ArrayList<>();
+                    prefixGroup.forEach(result -> paths.add(Path.of(result.path)));
+                    groups.addAll(group(paths, hasher::hash));
+                }
+            }
+        }
+        return groups;
+    }
+
+    private interface HashFunction {
+        byte[] apply(Path path) throws IOException;
+    }
+
+    private List<List<HashResult>> group(final List<Path> paths, final HashFunction function) throws InterruptedException {
+        final Map<ByteBuffer, List<HashResult>> byHash = new LinkedHashMap<>();
+        try (final OrderedPipeline<HashResult> pipeline = new OrderedPipeline<>(
+                options.getThreads(),
+                options.getWindow(),
+                result -> {
+                    if (result != null) {
+                        byHash.computeIfAbsent(ByteBuffer.wrap(result.hash), hash -> new ArrayList<>()).add(result);
+                    }
+                }
+        )) {
+            for (final Path path : paths) {
+                pipeline.submit(() -> {
+                    try {
+                        return new HashResult(function.apply(path), path.toString());
+                    } catch (final IOException e) {
+                        return null;
+                    }
+                });
+            }
+            pipeline.finish();
+        }
+        final List<List<HashResult>> groups = new ArrayList<>();
+        for (final List<HashResult> group : byHash.values()) {
+            if (group.size() > 1) {
+                groups.add(group);
+            }
+        }
+        return groups;
+    }
+
+    private byte[] prefixHash(final Path path) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(PREFIX_SIZE);
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+        }
+        final Hasher prefix = algorithm.newHasher();
+        prefix.update(buffer.flip());
+        return prefix.digest();
+    }
+}
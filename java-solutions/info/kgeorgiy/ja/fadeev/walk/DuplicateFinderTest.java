@@ -0,0 +1,128 @@
+package info.kgeorgiy.ja.fadeev.walk;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+@RunWith(JUnit4.class)
+public class DuplicateFinderTest {
+    // Size of prefix hashed before full contents
+    private static final int PREFIX_SIZE = 4096;
+    private static final Random random = new Random(5723458723L);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sharedPrefixTest() throws IOException, InterruptedException {
+        final byte[] base = new byte[3 * PREFIX_SIZE];
+        random.nextBytes(base);
+        final Path original = file("original", base);
+        final Path copy = file("copy", base);
+        // Same size and prefix, the last byte or a byte just after the prefix differs
+        final Path lastByte = file("last-byte", changed(base, base.length - 1));
+        final Path lastByteCopy = file("last-byte-copy", changed(base, base.length - 1));
+        final Path afterPrefix = file("after-prefix", changed(base, PREFIX_SIZE));
+        final Path inPrefix = file("in-prefix", changed(base, PREFIX_SIZE - 1));
+
+        final List<List<String>> groups = find(List.of(original, afterPrefix, lastByte, copy, inPrefix, lastByteCopy), 4);
+        Assert.assertEquals(Set.of(
+                List.of(original.toString(), copy.toString()),
+                List.of(lastByte.toString(), lastByteCopy.toString())
+        ), new HashSet<>(groups));
+    }
+
+    @Test
+    public void prefixBoundaryTest() throws IOException, InterruptedException {
+        for (final int size : new int[]{PREFIX_SIZE - 1, PREFIX_SIZE, PREFIX_SIZE + 1}) {
+            final byte[] base = new byte[size];
+            random.nextBytes(base);
+            final Path original = file("original" + size, base);
+            final Path copy = file("copy" + size, base);
+            final Path other = file("other" + size, changed(base, size - 1));
+            Assert.assertEquals("size " + size, List.of(List.of(original.toString(), copy.toString())),
+                    find(List.of(original, other, copy, original), 2));
+        }
+    }
+
+    @Test
+    public void randomTest() throws IOException, InterruptedException {
+        for (int i = 0; i < 20; i++) {
+            final List<byte[]> contents = new ArrayList<>();
+            final List<Path> files = new ArrayList<>();
+            for (int j = 0; j < 30; j++) {
+                final byte[] content;
+                if (!contents.isEmpty() && random.nextInt(3) == 0) {
+                    // Copy or a copy with a single changed byte, mostly after the prefix
+                    final byte[] source = contents.get(random.nextInt(contents.size()));
+                    content = random.nextBoolean() || source.length == 0
+                            ? source
+                            : changed(source, source.length - 1 - random.nextInt(Math.min(source.length, 10)));
+                } else {
+                    content = new byte[random.nextInt(3) * PREFIX_SIZE + random.nextInt(3)];
+                    random.nextBytes(content);
+                }
+                contents.add(content);
+                files.add(file(i + "-" + j, content));
+            }
+            final List<List<String>> groups = find(files, 1 + random.nextInt(8));
+            Assert.assertEquals(expected(files, contents), new HashSet<>(groups));
+            for (int j = 1; j < groups.size(); j++) {
+                Assert.assertTrue("largest files first",
+                        Files.size(Path.of(groups.get(j - 1).get(0))) >= Files.size(Path.of(groups.get(j).get(0))));
+            }
+        }
+    }
+
+    // Groups of equal contents of several files, files in input order
+    private static Set<List<String>> expected(final List<Path> files, final List<byte[]> contents) {
+        final Map<String, List<String>> byContent = new LinkedHashMap<>();
+        for (int i = 0; i < files.size(); i++) {
+            byContent.computeIfAbsent(Arrays.toString(contents.get(i)), content -> new ArrayList<>())
+                    .add(files.get(i).toString());
+        }
+        final Set<List<String>> groups = new HashSet<>();
+        for (final List<String> group : byContent.values()) {
+            if (group.size() > 1) {
+                groups.add(group);
+            }
+        }
+        return groups;
+    }
+
+    private static List<List<String>> find(final List<Path> files, final int threads)
+            throws IOException, InterruptedException {
+        final WalkOptions options = new WalkOptions().setDuplicates(true).setThreads(threads);
+        try (final EntryHasher hasher = new EntryHasher(options, new StreamContentReader(), null, null)) {
+            final DuplicateFinder finder = new DuplicateFinder(options, hasher);
+            for (final Path file : files) {
+                finder.add(file.toString());
+            }
+            final List<List<String>> groups = new ArrayList<>();
+            for (final List<HashResult> group : finder.find()) {
+                final List<String> paths = new ArrayList<>();
+                group.forEach(result -> paths.add(result.path));
+                groups.add(paths);
+            }
+            return groups;
+        }
+    }
+
+    private static byte[] changed(final byte[] bytes, final int index) {
+        final byte[] result = bytes.clone();
+        result[index]++;
+        return result;
+    }
+
+    private Path file(final String name, final byte[] content) throws IOException {
+        return Files.write(folder.getRoot().toPath().resolve(name), content);
+    }
+}
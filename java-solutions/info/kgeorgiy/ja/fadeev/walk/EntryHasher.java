@@ -0,0 +1,130 @@
+package info.kgeorgiy.ja.fadeev.walk;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Turns input lines into hash results according to {@link WalkOptions}.
+ * Safe for concurrent use.
+ */
+class EntryHasher implements AutoCloseable {
+    private final HashAlgorithm algorithm;
+    private final ContentReader reader;
+    private final DirectoryWalker walker;
+    private final HashCache cache;
+    private final TreeHasher tree;
+    private final WalkMetrics metrics;
+
+    EntryHasher(final WalkOptions options, final ContentReader reader, final HashCache cache, final WalkMetrics metrics) {
+        this.algorithm = options.getAlgorithm();
+        this.reader = reader;
+        this.cache = cache;
+        this.metrics = metrics;
+        this.tree = options.getTreeChunkSize() > 0
+                ? new TreeHasher(algorithm, options.getTreeChunkSize(), options.getTreeThreads(), metrics)
+                : null;
+        this.walker = options.isRecursive() ? new DirectoryWalker(this, options.getThreads()) : null;
+    }
+
+    /**
+     * Receives tasks producing results of a line in output order.
+     */
+    interface TaskSink {
+        void submit(Supplier<List<HashResult>> task) throws InterruptedException;
+    }
+
+    /**
+     * Passes tasks hashing the line to {@code sink}: a single one for a file,
+     * one per run of files for a directory, which is listed in parallel meanwhile, if walking recursively.
+     */
+    void hashLine(final String line, final TaskSink sink) throws InterruptedException {
+        final Path path;
+        try {
+            path = Path.of(line);
+        } catch (final InvalidPathException e) {
+            sink.submit(() -> List.of(failed(line)));
+            return;
+        }
+        if (walker != null && Files.isDirectory(path)) {
+            walker.walk(path, sink);
+        } else {
+            sink.submit(() -> List.of(hashFile(path)));
+        }
+    }
+
+    /**
+     * Hashes the line on the calling thread.
+     */
+    List<HashResult> hashLine(final String line) throws InterruptedException {
+        final List<HashResult> results = new ArrayList<>();
+        hashLine(line, task -> results.addAll(task.get()));
+        return results;
+    }
+
+    HashResult hashFile(final Path path) {
+        try {
+            return new HashResult(hash(path), path.toString());
+        } catch (final IOException e) {
+            return failed(path.toString());
+        }
+    }
+
+    HashResult failed(final String path) {
+        return new HashResult(new byte[algorithm.length()], path);
+    }
+
+    /**
+     * Returns hash of {@code path}, taking it from the cache if the file is unchanged.
+     */
+    byte[] hash(final Path path) throws IOException {
+        if (metrics == null) {
+            return cachedHash(path);
+        }
+        final long start = System.nanoTime();
+        try {
+            final byte[] hash = cachedHash(path);
+            metrics.hashed(path, System.nanoTime() - start);
+            return hash;
+        } catch (final IOException e) {
+            metrics.failed();
+            throw e;
+        }
+    }
+
+    private byte[] cachedHash(final Path path) throws IOException {
+        if (cache == null) {
+            return hashContents(path);
+        }
+        final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        if (!attributes.isRegularFile()) {
+            return hashContents(path);
+        }
+        final byte[] cached = cache.lookup(path, attributes);
+        if (cached != null) {
+            return cached;
+        }
+        final byte[] hash = hashContents(path);
+        cache.store(path, attributes, hash);
+        return hash;
+    }
+
+    private byte[] hashContents(final Path path) throws IOException {
+        return tree != null ? tree.hash(path) : Walk.hash(path, algorithm, reader);
+    }
+
+    @Override
+    public void close() {
+        if (walker != null) {
+            walker.close();
+        }
+        if (tree != null) {
+            tree.close();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package info.kgeorgiy.ja.fadeev.walk;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Hash algorithms available to {@link Walk}.
+ */
+public enum HashAlgorithm {
+    PJW("pjw", 8) {
+        @Override
+        public Hasher newHasher() {
+            return new PjwHash();
+        }
+    },
+    SHA1("sha-1", 20) {
+        @Override
+        public Hasher newHasher() {
+            return new DigestHasher(digest("SHA-1"));
+        }
+    },
+    SHA256("sha-256", 32) {
+        @Override
+        public Hasher newHasher() {
+            return new DigestHasher(digest("SHA-256"));
+        }
+    },
+    XXH64("xxh64", 8) {
+        @Override
+        public Hasher newHasher() {
+            return new XxHash64();
+        }
+    };
+
+    private final String name;
+    private final int length;
+
+    HashAlgorithm(final String name, final int length) {
+        this.name = name;
+        this.length = length;
+    }
+
+    public abstract Hasher newHasher();
+
+    /**
+     * Returns length of digests in bytes.
+     */
+    public int length() {
+        return length;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns algorithm with given command line name.
+     *
+     * @throws IllegalArgumentException if there is no such algorithm
+     */
+    public static HashAlgorithm forName(final String name) {
+        for (final HashAlgorithm algorithm : values()) {
+            if (algorithm.name.equalsIgnoreCase(name)) {
+                return algorithm;
+            }
+        }
+        throw new IllegalArgumentException("unknown hash algorithm " + name);
+    }
+
+    private static MessageDigest digest(final String name) {
+        try {
+            return MessageDigest.getInstance(name);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new AssertionError("Required algorithm " + name + " is not supported", e);
+        }
+    }
+
+    private static class DigestHasher implements Hasher {
+        private final MessageDigest digest;
+
+        DigestHasher(final MessageDigest digest) {
+            this.digest = digest;
+        }
+
+        @Override
+        public void update(final ByteBuffer buffer) {
+            digest.update(buffer);
+        }
+
+        @Override
+        public byte[] digest() {
+            return digest.digest();
+        }
+    }
+}
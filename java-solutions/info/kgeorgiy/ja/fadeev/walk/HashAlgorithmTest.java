@@ -0,0 +1,121 @@
+package info.kgeorgiy.ja.fadeev.walk;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+@RunWith(JUnit4.class)
+public class HashAlgorithmTest {
+    private static final Random random = new Random(2357823457L);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void referenceVectorsTest() {
+        // xxHash64 with zero seed, as published with the reference implementation
+        checkVector(HashAlgorithm.XXH64, "", "ef46db3751d8e999");
+        checkVector(HashAlgorithm.XXH64, "a", "d24ec4f1a98c6e5b");
+        checkVector(HashAlgorithm.XXH64, "abc", "44bc2cf5ad770999");
+        checkVector(HashAlgorithm.XXH64, "Nobody inspects the spammish repetition", "fbcea83c8a378bf1");
+
+        checkVector(HashAlgorithm.SHA1, "abc", "a9993e364706816aba3e25717850c26c9cd0d89d");
+        checkVector(HashAlgorithm.SHA256, "abc", "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+        checkVector(HashAlgorithm.PJW, "", "0000000000000000");
+        checkVector(HashAlgorithm.PJW, "abc", "0000000000616263");
+    }
+
+    @Test
+    public void streamingTest() {
+        for (final HashAlgorithm algorithm : HashAlgorithm.values()) {
+            for (int i = 0; i < 300; i++) {
+                final byte[] data = new byte[random.nextInt(i % 10 == 0 ? 10_000 : 200)];
+                random.nextBytes(data);
+                final byte[] expected = hash(algorithm, ByteBuffer.wrap(data));
+                Assert.assertArrayEquals(algorithm + ", direct", expected, hash(algorithm, direct(data, ByteOrder.BIG_ENDIAN)));
+                Assert.assertArrayEquals(algorithm + ", little endian", expected, hash(algorithm, direct(data, ByteOrder.LITTLE_ENDIAN)));
+                Assert.assertArrayEquals(algorithm + ", chunks", expected, chunked(algorithm, data));
+            }
+        }
+    }
+
+    @Test
+    public void outputWidthTest() throws IOException {
+        final Path file = folder.newFile("file").toPath();
+        Files.write(file, "abc".getBytes(StandardCharsets.UTF_8));
+        final Path in = folder.getRoot().toPath().resolve("input.txt");
+        Files.write(in, List.of(file.toString(), folder.getRoot().toPath().resolve("missing").toString()));
+        for (final HashAlgorithm algorithm : HashAlgorithm.values()) {
+            Assert.assertEquals(algorithm.toString(), algorithm.length(), algorithm.newHasher().digest().length);
+            final Path out = folder.getRoot().toPath().resolve(algorithm.getName() + ".txt");
+            Walk.walk(in.toString(), out.toString(), new WalkOptions().setAlgorithm(algorithm));
+            final List<String> lines = Files.readAllLines(out, StandardCharsets.UTF_8);
+            Assert.assertEquals(2, lines.size());
+            Assert.assertEquals(toHex(hash(algorithm, ByteBuffer.wrap("abc".getBytes(StandardCharsets.UTF_8)))) + " " + file,
+                    lines.get(0));
+            Assert.assertTrue(lines.get(1), lines.get(1).matches("0{" + 2 * algorithm.length() + "} .*missing"));
+        }
+    }
+
+    @Test
+    public void forNameTest() {
+        for (final HashAlgorithm algorithm : HashAlgorithm.values()) {
+            Assert.assertSame(algorithm, HashAlgorithm.forName(algorithm.getName()));
+            Assert.assertSame(algorithm, HashAlgorithm.forName(algorithm.getName().toUpperCase()));
+        }
+        try {
+            HashAlgorithm.forName("md5");
+            Assert.fail("exception expected");
+        } catch (final IllegalArgumentException ignored) {
+        }
+    }
+
+    private static void checkVector(final HashAlgorithm algorithm, final String input, final String expected) {
+        Assert.assertEquals(algorithm + " of '" + input + "'", expected,
+                toHex(hash(algorithm, ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8)))));
+    }
+
+    private static byte[] hash(final HashAlgorithm algorithm, final ByteBuffer data) {
+        final Hasher hasher = algorithm.newHasher();
+        hasher.update(data);
+        Assert.assertFalse(data.hasRemaining());
+        return hasher.digest();
+    }
+
+    // Random split into buffers, including empty ones and ones shorter than an xxHash stripe
+    private static byte[] chunked(final HashAlgorithm algorithm, final byte[] data) {
+        final Hasher hasher = algorithm.newHasher();
+        for (int from = 0; from < data.length; ) {
+            final int length = Math.min(data.length - from, random.nextInt(random.nextBoolean() ? 40 : 2000));
+            final ByteBuffer buffer = ByteBuffer.wrap(data, from, length);
+            hasher.update(buffer);
+            Assert.assertFalse(buffer.hasRemaining());
+            from += length;
+        }
+        return hasher.digest();
+    }
+
+    private static ByteBuffer direct(final byte[] data, final ByteOrder order) {
+        return ByteBuffer.allocateDirect(data.length).order(order).put(data).flip();
+    }
+
+    private static String toHex(final byte[] bytes) {
+        final StringBuilder hex = new StringBuilder();
+        for (final byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,253 @@
+package info.kgeorgiy.ja.fadeev.walk;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Persistent cache of file hashes keyed by absolute path, size, modification time and file key.
+ * <p>
+ * The file is memory-mapped and queried in place, so opening costs the same for any number of entries.
+ * Layout (big-endian): header {@code magic, version, hash length, slots, count, mode hash, reserved},
+ * open addressing table of {@code slots} pairs {@code (path hash, record offset)} with zero offset
+ * for empty slots, then records {@code size, mtime, file key hash, path length, hash bytes, path bytes}.
+ * Cache of another algorithm or hash mode is ignored.
+ * Only entries looked up during the current run are written back by {@link #save()}.
+ */
+class HashCache {
+    private static final int MAGIC = 0x57484331;
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 32;
+    private static final int SLOT_SIZE = 16;
+    private static final int RECORD_HEADER_SIZE = 28;
+    // Files modified this close to the run start may change again within the same mtime tick
+    private static final long RACY_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private final Path file;
+    private final HashAlgorithm algorithm;
+    private final long mode;
+    private final ByteBuffer mapped;
+    private final int slots;
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+    private final long startNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private HashCache(final Path file, final HashAlgorithm algorithm, final long mode, final ByteBuffer mapped) {
+        this.file = file;
+        this.algorithm = algorithm;
+        this.mode = mode;
+        this.mapped = mapped;
+        this.slots = mapped == null ? 0 : mapped.getInt(12);
+    }
+
+    /**
+     * Opens cache stored in {@code file}. Missing or malformed file gives an empty cache.
+     */
+    static HashCache open(final Path file, final HashAlgorithm algorithm, final String prefix) {
+        final long mode = pathHash((prefix + algorithm.getName()).getBytes(StandardCharsets.UTF_8));
+        if (!Files.isRegularFile(file)) {
+            return new HashCache(file, algorithm, mode, null);
+        }
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                return new HashCache(file, algorithm, mode, null);
+            }
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            final int slots = buffer.getInt(12);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                    || buffer.getInt(8) != algorithm.length()
+                    || buffer.getLong(20) != mode
+                    || slots <= 0 || Integer.bitCount(slots) != 1
+                    || HEADER_SIZE + (long) slots * SLOT_SIZE > size) {
+                return new HashCache(file, algorithm, mode, null);
+            }
+            return new HashCache(file, algorithm, mode, buffer);
+        } catch (final IOException e) {
+            return new HashCache(file, algorithm, mode, null);
+        }
+    }
+
+    private static byte[] bytes(final ByteBuffer buffer, final int offset, final int length) {
+        final byte[] bytes = new byte[length];
+        buffer.duplicate().position(offset).get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Returns cached hash of {@code path} or {@code null} if it is absent or stale.
+     */
+    byte[] lookup(final Path path, final BasicFileAttributes attributes) {
+        final Entry entry = new Entry(key(path), attributes, null);
+        final byte[] hash = find(entry);
+        if (hash == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+            current.put(entry.path, entry.withHash(hash));
+        }
+        return hash;
+    }
+
+    void store(final Path path, final BasicFileAttributes attributes, final byte[] hash) {
+        final Entry entry = new Entry(key(path), attributes, hash);
+        if (entry.mtime < startNanos - RACY_NANOS) {
+            current.put(entry.path, entry);
+        }
+    }
+
+    private static String key(final Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+
+    private byte[] find(final Entry entry) {
+        if (mapped == null) {
+            return null;
+        }
+        final byte[] bytes = entry.path.getBytes(StandardCharsets.UTF_8);
+        final long pathHash = pathHash(bytes);
+        try {
+            // A corrupted table may have no empty slots, so at most every slot is probed once
+            for (int probe = 0, i = (int) pathHash & (slots - 1); probe < slots; probe++, i = (i + 1) & (slots - 1)) {
+                final int slot = HEADER_SIZE + i * SLOT_SIZE;
+                final int offset = (int) mapped.getLong(slot + 8);
+                if (offset == 0) {
+                    return null;
+                }
+                if (mapped.getLong(slot) == pathHash && matches(offset, bytes, entry)) {
+                    return bytes(mapped, offset + RECORD_HEADER_SIZE, algorithm.length());
+                }
+            }
+            return null;
+        } catch (final IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private boolean matches(final int offset, final byte[] path, final Entry entry) {
+        if (mapped.getLong(offset) != entry.size
+                || mapped.getLong(offset + 8) != entry.mtime
+                || mapped.getLong(offset + 16) != entry.fileKey
+                || mapped.getInt(offset + 24) != path.length) {
+            return false;
+        }
+        final int start = offset + RECORD_HEADER_SIZE + algorithm.length();
+        for (int i = 0; i < path.length; i++) {
+            if (mapped.get(start + i) != path[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Atomically replaces cache file with entries of the current run.
+     */
+    void save() throws IOException {
+        final List<Entry> entries = new ArrayList<>(current.values());
+        final List<byte[]> paths = new ArrayList<>(entries.size());
+        final int slots = Math.max(16, Integer.highestOneBit(Math.max(1, entries.size() * 2 - 1)) << 1);
+        final long[] table = new long[slots * 2];
+        long offset = HEADER_SIZE + (long) slots * SLOT_SIZE;
+        for (final Entry entry : entries) {
+            final byte[] bytes = entry.path.getBytes(StandardCharsets.UTF_8);
+            final long pathHash = pathHash(bytes);
+            int i = (int) pathHash & (slots - 1);
+            while (table[i * 2 + 1] != 0) {
+                i = (i + 1) & (slots - 1);
+            }
+            table[i * 2] = pathHash;
+            table[i * 2 + 1] = offset;
+            paths.add(bytes);
+            offset += RECORD_HEADER_SIZE + algorithm.length() + bytes.length;
+        }
+        if (offset > Integer.MAX_VALUE) {
+            throw new IOException("hash cache is too large: " + offset + " bytes");
+        }
+
+        final Path parent = file.toAbsolutePath().getParent();
+        final Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(algorithm.length());
+                out.writeInt(slots);
+                out.writeInt(entries.size());
+                out.writeLong(mode);
+                out.writeInt(0);
+                for (final long value : table) {
+                    out.writeLong(value);
+                }
+                for (int i = 0; i < entries.size(); i++) {
+                    final Entry entry = entries.get(i);
+                    out.writeLong(entry.size);
+                    out.writeLong(entry.mtime);
+                    out.writeLong(entry.fileKey);
+                    out.writeInt(paths.get(i).length);
+                    out.write(entry.hash);
+                    out.write(paths.get(i));
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    void print(final PrintStream out) {
+        out.printf("Hash cache: %d hits, %d misses%n", hits.sum(), misses.sum());
+    }
+
+    private static long pathHash(final byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (final byte b : bytes) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static final class Entry {
+        final String path;
+        final long size;
+        final long mtime;
+        final long fileKey;
+        final byte[] hash;
+
+        private Entry(final String path, final long size, final long mtime, final long fileKey, final byte[] hash) {
+            this.path = path;
+            this.size = size;
+            this.mtime = mtime;
+            this.fileKey = fileKey;
+            this.hash = hash;
+        }
+
+        Entry(final String path, final BasicFileAttributes attributes, final byte[] hash) {
+            this(path,
+                    attributes.size(),
+                    attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS),
+                    attributes.fileKey() == null ? 0 : pathHash(attributes.fileKey().toString().getBytes(StandardCharsets.UTF_8)),
+                    hash);
+        }
+
+        Entry withHash(final byte[] hash) {
+            return new Entry(path, size, mtime, fileKey, hash);
+        }
+    }
+}
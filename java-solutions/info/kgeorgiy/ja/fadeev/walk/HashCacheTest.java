@@ -0,0 +1,178 @@
+package info.kgeorgiy.ja.fadeev.walk;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class HashCacheTest {
+    private static final HashAlgorithm ALGORITHM = HashAlgorithm.SHA256;
+    // Header size and table slot size of the cache file format
+    private static final int HEADER_SIZE = 32;
+    private static final int SLOT_SIZE = 16;
+    private static final Random random = new Random(8934572345L);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTripTest() throws IOException {
+        final Path cacheFile = cacheFile();
+        final List<Path> files = new ArrayList<>();
+        final List<byte[]> hashes = new ArrayList<>();
+        final HashCache cache = HashCache.open(cacheFile, ALGORITHM, "");
+        for (int i = 0; i < 1000; i++) {
+            final Path file = file("file" + i, random.nextInt(100));
+            Assert.assertNull(cache.lookup(file, attributes(file)));
+            final byte[] hash = Walk.hash(file, ALGORITHM, new StreamContentReader());
+            cache.store(file, attributes(file), hash);
+            files.add(file);
+            hashes.add(hash);
+        }
+        cache.save();
+
+        final HashCache reopened = HashCache.open(cacheFile, ALGORITHM, "");
+        for (int i = 0; i < files.size(); i++) {
+            Assert.assertArrayEquals(hashes.get(i), reopened.lookup(files.get(i), attributes(files.get(i))));
+            // Relative paths are keyed by their absolute form
+            final Path relative = Path.of("").toAbsolutePath().relativize(files.get(i));
+            Assert.assertArrayEquals(hashes.get(i), reopened.lookup(relative, attributes(files.get(i))));
+        }
+        Assert.assertNull(reopened.lookup(folder.getRoot().toPath().resolve("other"), attributes(files.get(0))));
+
+        // Only entries looked up are written back
+        final HashCache partial = HashCache.open(cacheFile, ALGORITHM, "");
+        Assert.assertNotNull(partial.lookup(files.get(0), attributes(files.get(0))));
+        partial.save();
+        final HashCache last = HashCache.open(cacheFile, ALGORITHM, "");
+        Assert.assertArrayEquals(hashes.get(0), last.lookup(files.get(0), attributes(files.get(0))));
+        Assert.assertNull(last.lookup(files.get(1), attributes(files.get(1))));
+    }
+
+    @Test
+    public void invalidationTest() throws IOException {
+        final Path cacheFile = cacheFile();
+        final Path resized = file("resized", 10);
+        final Path touched = file("touched", 10);
+        final Path kept = file("kept", 10);
+        final HashCache cache = HashCache.open(cacheFile, ALGORITHM, "");
+        for (final Path file : List.of(resized, touched, kept)) {
+            cache.store(file, attributes(file), Walk.hash(file, ALGORITHM, new StreamContentReader()));
+        }
+        cache.save();
+
+        final FileTime mtime = Files.getLastModifiedTime(resized);
+        Files.write(resized, new byte[11]);
+        Files.setLastModifiedTime(resized, mtime);
+        Files.setLastModifiedTime(touched, FileTime.fromMillis(mtime.toMillis() - 1000));
+
+        final HashCache reopened = HashCache.open(cacheFile, ALGORITHM, "");
+        Assert.assertNull(reopened.lookup(resized, attributes(resized)));
+        Assert.assertNull(reopened.lookup(touched, attributes(touched)));
+        Assert.assertNotNull(reopened.lookup(kept, attributes(kept)));
+    }
+
+    @Test
+    public void recentlyModifiedTest() throws IOException {
+        // A file modified just now may change again within the same mtime tick, so it is not cached
+        final Path cacheFile = cacheFile();
+        final Path file = folder.newFile("recent").toPath();
+        final HashCache cache = HashCache.open(cacheFile, ALGORITHM, "");
+        cache.store(file, attributes(file), new byte[ALGORITHM.length()]);
+        cache.save();
+        Assert.assertNull(HashCache.open(cacheFile, ALGORITHM, "").lookup(file, attributes(file)));
+    }
+
+    @Test
+    public void otherModeTest() throws IOException {
+        final Path cacheFile = cacheFile();
+        final Path file = file("file", 10);
+        final HashCache cache = HashCache.open(cacheFile, ALGORITHM, "");
+        cache.store(file, attributes(file), Walk.hash(file, ALGORITHM, new StreamContentReader()));
+        cache.save();
+        Assert.assertNull(HashCache.open(cacheFile, HashAlgorithm.SHA1, "").lookup(file, attributes(file)));
+        Assert.assertNull(HashCache.open(cacheFile, ALGORITHM, "tree-1024:").lookup(file, attributes(file)));
+        Assert.assertNotNull(HashCache.open(cacheFile, ALGORITHM, "").lookup(file, attributes(file)));
+    }
+
+    @Test
+    public void malformedFileTest() throws IOException {
+        final Path cacheFile = cacheFile();
+        final Path file = file("file", 10);
+        for (final int size : new int[]{0, 7, HEADER_SIZE, 1000}) {
+            final byte[] garbage = new byte[size];
+            random.nextBytes(garbage);
+            Files.write(cacheFile, garbage);
+            final HashCache cache = HashCache.open(cacheFile, ALGORITHM, "");
+            Assert.assertNull(cache.lookup(file, attributes(file)));
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void fullTableTest() throws IOException {
+        final Path cacheFile = cacheFile();
+        final Path file = file("file", 10);
+        final byte[] hash = Walk.hash(file, ALGORITHM, new StreamContentReader());
+        final HashCache cache = HashCache.open(cacheFile, ALGORITHM, "");
+        cache.store(file, attributes(file), hash);
+        cache.save();
+
+        // Points every empty slot to the only record under another path hash, so the table has no empty slots
+        try (final FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            final int slots = header.getInt(12);
+            final ByteBuffer table = ByteBuffer.allocate(slots * SLOT_SIZE);
+            channel.read(table, HEADER_SIZE);
+            long record = 0;
+            for (int i = 0; i < slots; i++) {
+                record = Math.max(record, table.getLong(i * SLOT_SIZE + 8));
+            }
+            for (int i = 0; i < slots; i++) {
+                if (table.getLong(i * SLOT_SIZE + 8) == 0) {
+                    table.putLong(i * SLOT_SIZE, i);
+                    table.putLong(i * SLOT_SIZE + 8, record);
+                }
+            }
+            channel.write(table.clear(), HEADER_SIZE);
+        }
+
+        final HashCache reopened = HashCache.open(cacheFile, ALGORITHM, "");
+        Assert.assertArrayEquals(hash, reopened.lookup(file, attributes(file)));
+        final Path other = file("other", 10);
+        Assert.assertNull(reopened.lookup(other, attributes(other)));
+    }
+
+    private Path cacheFile() {
+        return folder.getRoot().toPath().resolve("walk.cache");
+    }
+
+    // File modified an hour ago, well before the racy interval of the run
+    private Path file(final String name, final int size) throws IOException {
+        final byte[] content = new byte[size];
+        random.nextBytes(content);
+        final Path file = Files.write(folder.getRoot().toPath().resolve(name), content);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1)));
+        return file;
+    }
+
+    private static BasicFileAttributes attributes(final Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class);
+    }
+}
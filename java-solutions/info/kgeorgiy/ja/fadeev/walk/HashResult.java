@@ -0,0 +1,11 @@
+package info.kgeorgiy.ja.fadeev.walk;
+
+class HashResult {
+    final byte[] hash;
+    final String path;
+
+    HashResult(final byte[] hash, final String path) {
+        this.hash = hash;
+        this.path = path;
+    }
+}
@@ -0,0 +1,18 @@
+package info.kgeorgiy.ja.fadeev.walk;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Incremental hash computation over a sequence of buffers.
+ */
+public interface Hasher {
+    /**
+     * Consumes remaining bytes of {@code buffer}.
+     */
+    void update(ByteBuffer buffer);
+
+    /**
+     * Returns hash of all consumed bytes, {@link HashAlgorithm#length()} bytes long.
+     */
+    byte[] digest();
+}
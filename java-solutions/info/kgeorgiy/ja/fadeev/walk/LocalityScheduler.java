@@ -0,0 +1,99 @@
+package info.kgeorgiy.ja.fadeev.walk;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Reads input manifest in batches of bounded memory and orders each batch for locality of disk access:
+ * by parent directory, then by inode number where the file system reports it.
+ */
+class LocalityScheduler {
+    // Approximate heap cost of a line apart from its characters: strings, path keys and results
+    private static final int ENTRY_OVERHEAD = 160;
+
+    private final BufferedReader reader;
+    private final long batchBytes;
+    private boolean inodes = true;
+
+    LocalityScheduler(final BufferedReader reader, final long batchBytes) {
+        this.reader = reader;
+        this.batchBytes = batchBytes;
+    }
+
+    /**
+     * Returns next lines of input, or {@code null} when input is over.
+     */
+    List<String> nextBatch() throws IOException {
+        final List<String> batch = new ArrayList<>();
+        long bytes = 0;
+        String line;
+        while (bytes < batchBytes && (line = reader.readLine()) != null) {
+            batch.add(line);
+            bytes += ENTRY_OVERHEAD + 2L * line.length();
+        }
+        return batch.isEmpty() ? null : batch;
+    }
+
+    /**
+     * Returns indices of {@code batch} in the order files should be read.
+     */
+    Integer[] order(final List<String> batch) {
+        final Key[] keys = new Key[batch.size()];
+        final Integer[] order = new Integer[batch.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = key(batch.get(i));
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(i -> keys[i]));
+        return order;
+    }
+
+    private Key key(final String line) {
+        final Path path;
+        try {
+            path = Path.of(line).toAbsolutePath();
+        } catch (final InvalidPathException e) {
+            return new Key("", -1);
+        }
+        final Path parent = path.getParent();
+        return new Key(parent == null ? "" : parent.toString(), inode(path));
+    }
+
+    private long inode(final Path path) {
+        if (!inodes) {
+            return -1;
+        }
+        try {
+            return ((Number) Files.getAttribute(path, "unix:ino", LinkOption.NOFOLLOW_LINKS)).longValue();
+        } catch (final UnsupportedOperationException | IllegalArgumentException e) {
+            inodes = false;
+            return -1;
+        } catch (final IOException e) {
+            return -1;
+        }
+    }
+
+    private static final class Key implements Comparable<Key> {
+        final String directory;
+        final long inode;
+
+        Key(final String directory, final long inode) {
+            this.directory = directory;
+            this.inode = inode;
+        }
+
+        @Override
+        public int compareTo(final Key that) {
+            final int byDirectory = directory.compareTo(that.directory);
+            return byDirectory != 0 ? byDirectory : Long.compare(inode, that.inode);
+        }
+    }
+}
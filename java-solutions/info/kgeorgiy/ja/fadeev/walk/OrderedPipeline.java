@@ -0,0 +1,81 @@
+package info.kgeorgiy.ja.fadeev.walk;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Runs tasks on a bounded pool and passes their results to a sink in submission order.
+ * At most {@code window} results are in flight, so memory does not depend on the number of tasks.
+ * With a single thread tasks run inline on the submitting thread.
+ */
+class OrderedPipeline<T> implements AutoCloseable {
+    private final ExecutorService executor;
+    private final Queue<Future<T>> pending = new ArrayDeque<>();
+    private final int window;
+    private final Consumer<? super T> sink;
+
+    OrderedPipeline(final int threads, final int window, final Consumer<? super T> sink) {
+        this.executor = threads > 1 ? Executors.newFixedThreadPool(threads, OrderedPipeline::daemon) : null;
+        this.window = Math.max(window, 1);
+        this.sink = sink;
+    }
+
+    private static Thread daemon(final Runnable runnable) {
+        final Thread thread = new Thread(runnable);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    void submit(final Callable<T> task) throws InterruptedException {
+        if (executor == null) {
+            sink.accept(call(task));
+            return;
+        }
+        while (pending.size() >= window) {
+            sink.accept(await(pending.poll()));
+        }
+        pending.add(executor.submit(task));
+    }
+
+    void finish() throws InterruptedException {
+        while (!pending.isEmpty()) {
+            sink.accept(await(pending.poll()));
+        }
+    }
+
+    private static <T> T call(final Callable<T> task) {
+        try {
+            return task.call();
+        } catch (final RuntimeException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static <T> T await(final Future<T> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            pending.forEach(future -> future.cancel(true));
+            pending.clear();
+            executor.shutdownNow();
+        }
+    }
+}
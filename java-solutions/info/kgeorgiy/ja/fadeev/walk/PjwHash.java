@@ -0,0 +1,34 @@
+package info.kgeorgiy.ja.fadeev.walk;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 64-bit PJW hash accumulated over a sequence of buffers.
+ */
+class PjwHash implements Hasher {
+    private long hash;
+
+    @Override
+    public void update(final ByteBuffer buffer) {
+        long h = hash;
+        for (int i = buffer.position(), limit = buffer.limit(); i < limit; i++) {
+            h = (h << 8) + (buffer.get(i) & 0xff);
+            final long high = h & 0xff00_0000_0000_0000L;
+            if (high != 0) {
+                h ^= high >> 48;
+                h &= ~high;
+            }
+        }
+        buffer.position(buffer.limit());
+        hash = h;
+    }
+
+    @Override
+    public byte[] digest() {
+        return ByteBuffer.allocate(Long.BYTES).putLong(hash).array();
+    }
+
+    long getValue() {
+        return hash;
+    }
+}
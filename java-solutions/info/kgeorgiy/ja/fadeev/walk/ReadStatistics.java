@@ -0,0 +1,62 @@
+package info.kgeorgiy.ja.fadeev.walk;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * {@link ContentReader} decorator collecting read throughput by file size class.
+ */
+class ReadStatistics implements ContentReader {
+    private static final long[] BOUNDS = {4L << 10, 64L << 10, 1L << 20, 64L << 20, Long.MAX_VALUE};
+    private static final String[] NAMES = {"< 4 KiB", "< 64 KiB", "< 1 MiB", "< 64 MiB", ">= 64 MiB"};
+
+    private final ContentReader reader;
+    private final LongAdder[] files = adders();
+    private final LongAdder[] bytes = adders();
+    private final LongAdder[] nanos = adders();
+
+    ReadStatistics(final ContentReader reader) {
+        this.reader = reader;
+    }
+
+    private static LongAdder[] adders() {
+        final LongAdder[] adders = new LongAdder[BOUNDS.length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    @Override
+    public long read(final Path path, final Consumer<ByteBuffer> consumer) throws IOException {
+        final long start = System.nanoTime();
+        final long size = reader.read(path, consumer);
+        final long time = System.nanoTime() - start;
+        int i = 0;
+        while (size >= BOUNDS[i]) {
+            i++;
+        }
+        files[i].increment();
+        bytes[i].add(size);
+        nanos[i].add(time);
+        return size;
+    }
+
+    void print(final PrintStream out) {
+        out.println("Read throughput by file size:");
+        for (int i = 0; i < BOUNDS.length; i++) {
+            final long count = files[i].sum();
+            if (count == 0) {
+                continue;
+            }
+            final double mib = bytes[i].sum() / (double) (1 << 20);
+            final double seconds = nanos[i].sum() / 1e9;
+            out.printf("  %-10s %10d files %12.1f MiB %10.1f MiB/s%n",
+                    NAMES[i], count, mib, seconds > 0 ? mib / seconds : 0.0);
+        }
+    }
+}
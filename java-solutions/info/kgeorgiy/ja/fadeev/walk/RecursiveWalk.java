@@ -1,5 +1,13 @@
 package info.kgeorgiy.ja.fadeev.walk;
 
+/**
+ * {@link Walk} that expands input directories into all files of their trees.
+ * Uses all available processors unless {@code --parallel=N} is given.
+ */
 public class RecursiveWalk extends Walk {
-
-}
\ No newline at end of file
+    public static void main(final String[] args) {
+        run(args, new WalkOptions()
+                .setRecursive(true)
+                .setThreads(Runtime.getRuntime().availableProcessors()));
+    }
+}
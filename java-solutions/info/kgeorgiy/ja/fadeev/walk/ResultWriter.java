@@ -0,0 +1,114 @@
+package info.kgeorgiy.ja.fadeev.walk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes {@code hash path} lines in UTF-8 through a single reused block buffer.
+ * Output is the same as of {@code String.format("%016x %s%n", ...)} for 64-bit hashes,
+ * without intermediate strings. Hashes may carry a fixed prefix naming the hash mode.
+ */
+class ResultWriter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+    private final OutputStream out;
+    private final byte[] prefix;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int size;
+    private long flushed;
+
+    ResultWriter(final OutputStream out) {
+        this(out, "");
+    }
+
+    ResultWriter(final OutputStream out, final String prefix) {
+        this.out = out;
+        this.prefix = prefix.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    void write(final byte[] hash, final String path) throws IOException {
+        ensure(prefix.length + hash.length * 2 + 1);
+        System.arraycopy(prefix, 0, buffer, size, prefix.length);
+        size = hex(hash, buffer, size + prefix.length);
+        buffer[size++] = ' ';
+        writeUtf8(path);
+        newLine();
+    }
+
+    /**
+     * Writes hex digits of {@code hash} to {@code to} starting from {@code offset}.
+     *
+     * @return offset after the last written digit
+     */
+    static int hex(final byte[] hash, final byte[] to, int offset) {
+        for (final byte b : hash) {
+            to[offset++] = HEX[(b >> 4) & 0xf];
+            to[offset++] = HEX[b & 0xf];
+        }
+        return offset;
+    }
+
+    void newLine() throws IOException {
+        ensure(LINE_SEPARATOR.length);
+        for (final byte b : LINE_SEPARATOR) {
+            buffer[size++] = b;
+        }
+    }
+
+    private void writeUtf8(final String s) throws IOException {
+        for (int i = 0, length = s.length(); i < length; i++) {
+            ensure(4);
+            final char c = s.charAt(i);
+            if (c < 0x80) {
+                buffer[size++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[size++] = (byte) (0xc0 | (c >> 6));
+                buffer[size++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                if (!Character.isHighSurrogate(c) || i + 1 == length || !Character.isLowSurrogate(s.charAt(i + 1))) {
+                    throw new MalformedInputException(1);
+                }
+                final int cp = Character.toCodePoint(c, s.charAt(++i));
+                buffer[size++] = (byte) (0xf0 | (cp >> 18));
+                buffer[size++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                buffer[size++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                buffer[size++] = (byte) (0x80 | (cp & 0x3f));
+            } else {
+                buffer[size++] = (byte) (0xe0 | (c >> 12));
+                buffer[size++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[size++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+    }
+
+    private void ensure(final int bytes) throws IOException {
+        if (size + bytes > buffer.length) {
+            flush();
+        }
+    }
+
+    /**
+     * Returns number of bytes written so far, including buffered ones.
+     */
+    long position() {
+        return flushed + size;
+    }
+
+    void flush() throws IOException {
+        out.write(buffer, 0, size);
+        flushed += size;
+        size = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (out) {
+            flush();
+        }
+    }
+}
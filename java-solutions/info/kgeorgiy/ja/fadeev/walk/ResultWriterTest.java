@@ -0,0 +1,95 @@
+package info.kgeorgiy.ja.fadeev.walk;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+@RunWith(JUnit4.class)
+public class ResultWriterTest {
+    private static final String[] PATHS = {
+            "", "a", "dir/file.txt", "with space", "Файл", "目录/文件", "emoji 😀 path", "ÿࠀ￿"
+    };
+    private static final Random random = new Random(4875215438L);
+
+    @Test
+    public void longHashesTest() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final StringBuilder expected = new StringBuilder();
+        try (final ResultWriter writer = new ResultWriter(bytes)) {
+            for (int i = 0; i < 1000; i++) {
+                final long hash = i < 3 ? i - 1 : random.nextLong();
+                final String path = randomPath();
+                writer.write(ByteBuffer.allocate(Long.BYTES).putLong(hash).array(), path);
+                expected.append(String.format("%016x %s%n", hash, path));
+            }
+        }
+        assertOutput(expected.toString(), bytes);
+    }
+
+    @Test
+    public void bufferBoundaryTest() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final StringBuilder expected = new StringBuilder();
+        final String longPath = "Ж".repeat(100_000);
+        long position = 0;
+        try (final ResultWriter writer = new ResultWriter(bytes)) {
+            for (int i = 0; i < 20_000; i++) {
+                final long hash = random.nextLong();
+                final String path = i % 5000 == 0 ? longPath : randomPath();
+                writer.write(ByteBuffer.allocate(Long.BYTES).putLong(hash).array(), path);
+                final String line = String.format("%016x %s%n", hash, path);
+                expected.append(line);
+                position += line.getBytes(StandardCharsets.UTF_8).length;
+                Assert.assertEquals(position, writer.position());
+            }
+        }
+        assertOutput(expected.toString(), bytes);
+    }
+
+    @Test
+    public void prefixedHashesTest() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final StringBuilder expected = new StringBuilder();
+        try (final ResultWriter writer = new ResultWriter(bytes, "tree:")) {
+            for (int i = 0; i < 100; i++) {
+                final byte[] hash = new byte[32];
+                random.nextBytes(hash);
+                final String path = randomPath();
+                writer.write(hash, path);
+                expected.append("tree:");
+                for (final byte b : hash) {
+                    expected.append(String.format("%02x", b));
+                }
+                expected.append(' ').append(path).append(System.lineSeparator());
+                if (i % 10 == 0) {
+                    writer.newLine();
+                    expected.append(System.lineSeparator());
+                }
+            }
+        }
+        assertOutput(expected.toString(), bytes);
+    }
+
+    @Test(expected = MalformedInputException.class)
+    public void unpairedSurrogateTest() throws IOException {
+        try (final ResultWriter writer = new ResultWriter(new ByteArrayOutputStream())) {
+            writer.write(new byte[8], "bad \uD800 path");
+        }
+    }
+
+    private static String randomPath() {
+        return PATHS[random.nextInt(PATHS.length)] + random.nextInt(1000);
+    }
+
+    private static void assertOutput(final String expected, final ByteArrayOutputStream actual) {
+        Assert.assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), actual.toByteArray());
+    }
+}
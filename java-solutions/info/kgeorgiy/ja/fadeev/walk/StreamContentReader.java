@@ -0,0 +1,29 @@
+package info.kgeorgiy.ja.fadeev.walk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Reads files through {@link InputStream} into a fresh heap buffer.
+ */
+public class StreamContentReader implements ContentReader {
+    private static final int BUFFER_SIZE = 1024;
+
+    @Override
+    public long read(final Path path, final Consumer<ByteBuffer> consumer) throws IOException {
+        try (final InputStream inputStream = Files.newInputStream(path)) {
+            final byte[] b = new byte[BUFFER_SIZE];
+            long total = 0;
+            int c;
+            while ((c = inputStream.read(b)) >= 0) {
+                consumer.accept(ByteBuffer.wrap(b, 0, c));
+                total += c;
+            }
+            return total;
+        }
+    }
+}
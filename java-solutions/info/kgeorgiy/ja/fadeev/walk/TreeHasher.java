@@ -0,0 +1,90 @@
+package info.kgeorgiy.ja.fadeev.walk;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Tree hash: file is split into chunks of fixed size, chunks are hashed in parallel with positional reads
+ * and the root is the hash of concatenated chunk digests. Empty file has a single empty chunk.
+ * Results differ from plain hashes, so {@link WalkOptions#getHashPrefix()} marks them in output.
+ */
+class TreeHasher implements AutoCloseable {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final ThreadLocal<ByteBuffer> BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    private final HashAlgorithm algorithm;
+    private final long chunkSize;
+    private final ForkJoinPool pool;
+    private final WalkMetrics metrics;
+
+    TreeHasher(final HashAlgorithm algorithm, final long chunkSize, final int threads, final WalkMetrics metrics) {
+        this.algorithm = algorithm;
+        this.chunkSize = chunkSize;
+        this.metrics = metrics;
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    byte[] hash(final Path path) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final Hasher root = algorithm.newHasher();
+            if (size <= chunkSize) {
+                root.update(ByteBuffer.wrap(chunk(channel, 0, size)));
+                return root.digest();
+            }
+            final List<ForkJoinTask<byte[]>> chunks = new ArrayList<>();
+            for (long position = 0; position < size; position += chunkSize) {
+                final long start = position;
+                final long length = Math.min(chunkSize, size - position);
+                chunks.add(pool.submit(() -> {
+                    try {
+                        return chunk(channel, start, length);
+                    } catch (final IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+            try {
+                for (final ForkJoinTask<byte[]> chunk : chunks) {
+                    root.update(ByteBuffer.wrap(chunk.join()));
+                }
+            } catch (final UncheckedIOException e) {
+                chunks.forEach(chunk -> chunk.cancel(false));
+                throw e.getCause();
+            }
+            return root.digest();
+        }
+    }
+
+    private byte[] chunk(final FileChannel channel, final long start, final long length) throws IOException {
+        final Hasher hasher = algorithm.newHasher();
+        final ByteBuffer buffer = BUFFER.get();
+        final long end = start + length;
+        for (long position = start; position < end; ) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+            final int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+            hasher.update(buffer.flip());
+            if (metrics != null) {
+                metrics.addBytes(read);
+            }
+        }
+        return hasher.digest();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+}
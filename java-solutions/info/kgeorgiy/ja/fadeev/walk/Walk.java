@@ -4,10 +4,16 @@ import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
 
 
 // :NOTE: Форматирование кода
 public class Walk {
+    private static final ContentReader DEFAULT_READER = new ChannelContentReader();
+
     private enum Err {
         NULL_INPUT("expected arguments, provided null"),
         NULL_ARGUMENTS_INPUT("expected two not null arguments, provided"),
@@ -15,7 +21,11 @@ public class Walk {
         CREATE_DIRECTORY_FAILED("failed to create directory"),
         READING_FAILED("failed to read file"),
         WRITING_FAILED("failed to write in file"),
+        CACHE_SAVING_FAILED("failed to save hash cache"),
         INVALID_PATH("invalid %s path"),
+        INVALID_OPTION("invalid option"),
+        INTERRUPTED("walk was interrupted, output is incomplete"),
+        WATCH_FAILED("failed to watch files of"),
         IO_EXCEPTION("an I/O error occurs opening or creating %s file");
         private final String message;
 
@@ -34,18 +44,43 @@ public class Walk {
 
 
     public static void main(final String[] args) {
+        run(args, new WalkOptions());
+    }
+
+    static void run(final String[] args, final WalkOptions options) {
         if (args == null) {
             Err.NULL_INPUT.printMessage("", null);
-        } else if (args.length != 2) {
-            Err.INVALID_NUMBER_OF_ARG.printMessage(args.length, null);
-        } else if (args[0] == null || args[1] == null) {
-            Err.NULL_ARGUMENTS_INPUT.printMessage(args[0] + " " + args[1], null);
         } else {
-            walk(args[0], args[1]);
+            final List<String> files;
+            try {
+                files = options.parse(args);
+            } catch (final IllegalArgumentException e) {
+                Err.INVALID_OPTION.printMessage("", e);
+                return;
+            }
+            if (files.size() != 2) {
+                Err.INVALID_NUMBER_OF_ARG.printMessage(files.size(), null);
+            } else if (files.get(0) == null || files.get(1) == null) {
+                Err.NULL_ARGUMENTS_INPUT.printMessage(files.get(0) + " " + files.get(1), null);
+            } else {
+                walk(files.get(0), files.get(1), options);
+            }
         }
     }
 
-    private static void walk(final String in, final String out) {
+    public static void walk(final String in, final String out) {
+        walk(in, out, new WalkOptions());
+    }
+
+    /**
+     * Hashes files listed in {@code in} using {@code threads} workers.
+     * Results are written to {@code out} in input order.
+     */
+    public static void walk(final String in, final String out, final int threads) {
+        walk(in, out, new WalkOptions().setThreads(threads));
+    }
+
+    public static void walk(final String in, final String out, final WalkOptions options) {
         final Path pathIn = createPath(in, "in");
         final Path pathOut = createPath(out, "out");
         if (pathIn == null || pathOut == null) {
@@ -55,21 +90,31 @@ public class Walk {
         if (!createDirectoryIfNeeded(pathOut)) {
             return;
         }
+        final ReadStatistics statistics = options.isReadStatistics() ? new ReadStatistics(options.getReader()) : null;
+        final WalkMetrics metrics = options.getMetricsInterval() >= 0
+                ? new WalkMetrics(options.getMetricsInterval(), System.err)
+                : null;
+        final ContentReader statisticsReader = statistics != null ? statistics : options.getReader();
+        final ContentReader reader = metrics != null ? metrics.count(statisticsReader) : statisticsReader;
+        final HashCache cache = options.getCache() != null ? HashCache.open(options.getCache(), options.getAlgorithm(), options.getHashPrefix()) : null;
         try (final BufferedReader bufferedReader = Files.newBufferedReader(pathIn)) {
-            try (final BufferedWriter bufferedWriter = Files.newBufferedWriter(pathOut)) {
-                try {
-                    String line;
-                    while ((line = bufferedReader.readLine()) != null) {
-                        try {
-                            final Path path = Path.of(line);
-                            final long hash = calculateHash(path);
-                            writeHash(hash, path.toString(), bufferedWriter);
-                        } catch (final InvalidPathException e) {
-                            writeHash(0, line, bufferedWriter);
-                        }
+            try (final ResultWriter writer = new ResultWriter(Files.newOutputStream(pathOut), options.getHashPrefix())) {
+                try (final EntryHasher hasher = new EntryHasher(options, reader, cache, metrics)) {
+                    if (options.isDuplicates()) {
+                        findDuplicates(bufferedReader, writer, hasher, options);
+                    } else if (options.isWatch()) {
+                        watch(bufferedReader, writer, hasher, options, pathOut, cache);
+                    } else {
+                        hashAll(bufferedReader, writer, hasher, options, null);
+                    }
+                    if (cache != null && !options.isWatch()) {
+                        saveCache(cache, options.getCache());
                     }
                 } catch (final IOException e) {
                     Err.READING_FAILED.printMessage(out, e);
+                } catch (final InterruptedException e) {
+                    Err.INTERRUPTED.printMessage(out, e);
+                    Thread.currentThread().interrupt();
                 }
             } catch (final IOException e) {
                 Err.IO_EXCEPTION.printMessage(out, "output", e);
@@ -77,6 +122,150 @@ public class Walk {
         } catch (final IOException e) {
             Err.IO_EXCEPTION.printMessage(in, "input", e);
         }
+        if (statistics != null) {
+            statistics.print(System.err);
+        }
+        if (cache != null) {
+            cache.print(System.err);
+        }
+        if (metrics != null) {
+            metrics.close();
+            metrics.printSummary(System.err);
+        }
+    }
+
+    private static void hashAll(
+            final BufferedReader bufferedReader,
+            final ResultWriter writer,
+            final EntryHasher hasher,
+            final WalkOptions options,
+            final WalkWatcher watcher
+    ) throws IOException, InterruptedException {
+        final Consumer<List<HashResult>> output = results -> results.forEach(result -> {
+            if (watcher != null) {
+                watcher.index(result.path, writer.position());
+            }
+            writeResult(result, writer);
+        });
+        if (options.getLocalityBatchBytes() > 0) {
+            hashByLocality(bufferedReader, output, hasher, options, watcher);
+            return;
+        }
+        try (final OrderedPipeline<List<HashResult>> pipeline = new OrderedPipeline<>(
+                options.getThreads(),
+                options.getWindow(),
+                output
+        )) {
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                if (watcher != null && options.isRecursive()) {
+                    watchTree(watcher, line);
+                }
+                hasher.hashLine(line, task -> pipeline.submit(task::get));
+            }
+            pipeline.finish();
+        }
+    }
+
+    private static void hashByLocality(
+            final BufferedReader bufferedReader,
+            final Consumer<List<HashResult>> output,
+            final EntryHasher hasher,
+            final WalkOptions options,
+            final WalkWatcher watcher
+    ) throws IOException, InterruptedException {
+        final LocalityScheduler scheduler = new LocalityScheduler(bufferedReader, options.getLocalityBatchBytes());
+        // Tasks are drained in submission order, so a batch is complete once its last task is drained,
+        // while tasks of the next batch are already running
+        try (final OrderedPipeline<Runnable> pipeline = new OrderedPipeline<>(
+                options.getThreads(),
+                options.getWindow(),
+                Runnable::run
+        )) {
+            List<String> batch;
+            while ((batch = scheduler.nextBatch()) != null) {
+                final List<List<HashResult>> results = new ArrayList<>(Collections.nCopies(batch.size(), null));
+                final Integer[] order = scheduler.order(batch);
+                for (int i = 0; i < order.length; i++) {
+                    final int index = order[i];
+                    final String line = batch.get(index);
+                    if (watcher != null && options.isRecursive()) {
+                        watchTree(watcher, line);
+                    }
+                    final Runnable done = i == order.length - 1 ? () -> results.forEach(output) : () -> {};
+                    // Completion of the task happens-before the pipeline drains it
+                    pipeline.submit(() -> {
+                        results.set(index, hasher.hashLine(line));
+                        return done;
+                    });
+                }
+            }
+            pipeline.finish();
+        }
+    }
+
+    private static void watch(
+            final BufferedReader bufferedReader,
+            final ResultWriter writer,
+            final EntryHasher hasher,
+            final WalkOptions options,
+            final Path out,
+            final HashCache cache
+    ) throws IOException, InterruptedException {
+        try (final WalkWatcher watcher = new WalkWatcher(out, hasher, options.getHashPrefix(), System.err)) {
+            hashAll(bufferedReader, writer, hasher, options, watcher);
+            writer.flush();
+            if (cache != null) {
+                saveCache(cache, options.getCache());
+            }
+            try {
+                watcher.run();
+            } catch (final InterruptedException e) {
+                // Interruption is the way to stop watching, output is complete and up to date
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void watchTree(final WalkWatcher watcher, final String line) {
+        try {
+            final Path path = Path.of(line);
+            if (Files.isDirectory(path)) {
+                watcher.watchTree(path);
+            }
+        } catch (final InvalidPathException ignored) {
+        } catch (final IOException e) {
+            Err.WATCH_FAILED.printMessage(line, e);
+        }
+    }
+
+    private static void findDuplicates(
+            final BufferedReader bufferedReader,
+            final ResultWriter writer,
+            final EntryHasher hasher,
+            final WalkOptions options
+    ) throws IOException, InterruptedException {
+        final DuplicateFinder finder = new DuplicateFinder(options, hasher);
+        String line;
+        while ((line = bufferedReader.readLine()) != null) {
+            finder.add(line);
+        }
+        boolean first = true;
+        for (final List<HashResult> group : finder.find()) {
+            if (!first) {
+                writer.newLine();
+            }
+            first = false;
+            group.forEach(result -> writeResult(result, writer));
+        }
+    }
+
+    private static void saveCache(final HashCache cache, final Path file) {
+        try {
+            cache.save();
+        } catch (final IOException e) {
+            Err.CACHE_SAVING_FAILED.printMessage(file, e);
+        }
     }
 
     private static boolean createDirectoryIfNeeded(final Path path) {
@@ -92,6 +281,14 @@ public class Walk {
         return true;
     }
 
+    private static void writeResult(final HashResult result, final ResultWriter writer) {
+        try {
+            writer.write(result.hash, result.path);
+        } catch (final IOException e) {
+            Err.WRITING_FAILED.printMessage(result.path, e);
+        }
+    }
+
     public static void writeHash(final long hash, final String path, final BufferedWriter bufferedWriter) {
         try {
             bufferedWriter.write(String.format("%016x %s%n", hash, path));
@@ -101,26 +298,25 @@ public class Walk {
     }
 
     public static long calculateHash(final Path path) {
-        try (final InputStream inputStream = Files.newInputStream(path)) {
-            final byte[] b = new byte[1024];
-            int c;
-            long hash = 0;
-            while ((c = inputStream.read(b)) >= 0) {
-                for (int i = 0; i < c; i++) {
-                    hash = (hash << 8) + (b[i] & 0xff);
-                    final long high = hash & 0xff00_0000_0000_0000L;
-                    if (high != 0) {
-                        hash ^= high >> 48;
-                        hash &= ~high;
-                    }
-                }
-            }
-            return hash;
+        return calculateHash(path, DEFAULT_READER);
+    }
+
+    public static long calculateHash(final Path path, final ContentReader reader) {
+        final PjwHash hash = new PjwHash();
+        try {
+            reader.read(path, hash::update);
+            return hash.getValue();
         } catch (final IOException e) {
             return 0;
         }
     }
 
+    static byte[] hash(final Path path, final HashAlgorithm algorithm, final ContentReader reader) throws IOException {
+        final Hasher hasher = algorithm.newHasher();
+        reader.read(path, hasher::update);
+        return hasher.digest();
+    }
+
     private static Path createPath(final String name, final String description) {
         try {
             return Path.of(name);
@@ -0,0 +1,165 @@
+package info.kgeorgiy.ja.fadeev.walk;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput and latency metrics of a walk: files and bytes per second, histogram of per-file hash latency,
+ * number of files that failed to open or read and the slowest files.
+ * Progress is printed periodically, {@link #printSummary} prints a single-line JSON object.
+ */
+class WalkMetrics implements AutoCloseable {
+    private static final int SLOWEST = 10;
+    private static final int BUCKETS = 32;
+
+    private final long start = System.nanoTime();
+    private final LongAdder files = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    // Bucket i counts latencies in [2^(i-1), 2^i) microseconds
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+    private final PriorityQueue<Slow> slowest = new PriorityQueue<>(Comparator.comparingLong((Slow slow) -> slow.nanos));
+    private volatile long slowThreshold;
+    private final ScheduledExecutorService reporter;
+
+    /**
+     * Creates metrics printing progress to {@code log} every {@code intervalSeconds}, zero disables progress.
+     */
+    WalkMetrics(final long intervalSeconds, final PrintStream log) {
+        if (intervalSeconds > 0) {
+            reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable);
+                thread.setDaemon(true);
+                return thread;
+            });
+            reporter.scheduleAtFixedRate(() -> printProgress(log), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        } else {
+            reporter = null;
+        }
+    }
+
+    /**
+     * Returns {@code reader} that counts read bytes.
+     */
+    ContentReader count(final ContentReader reader) {
+        return (path, consumer) -> {
+            final long size = reader.read(path, consumer);
+            bytes.add(size);
+            return size;
+        };
+    }
+
+    void addBytes(final long count) {
+        bytes.add(count);
+    }
+
+    void hashed(final Path path, final long nanos) {
+        files.increment();
+        final long micros = nanos / 1000;
+        histogram.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros)));
+        if (nanos > slowThreshold) {
+            synchronized (slowest) {
+                slowest.add(new Slow(path.toString(), nanos));
+                if (slowest.size() > SLOWEST) {
+                    slowest.poll();
+                }
+                if (slowest.size() == SLOWEST) {
+                    slowThreshold = slowest.peek().nanos;
+                }
+            }
+        }
+    }
+
+    void failed() {
+        failures.increment();
+    }
+
+    private double seconds() {
+        return Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+    }
+
+    void printProgress(final PrintStream log) {
+        final double seconds = seconds();
+        final long count = files.sum();
+        final double mib = bytes.sum() / (double) (1 << 20);
+        log.printf("Walk: %d files (%.1f/s), %.1f MiB (%.1f MiB/s), %d failures%n",
+                count, count / seconds, mib, mib / seconds, failures.sum());
+    }
+
+    void printSummary(final PrintStream log) {
+        final double seconds = seconds();
+        final StringBuilder json = new StringBuilder("{");
+        json.append("\"seconds\":").append(String.format(Locale.ROOT, "%.3f", seconds));
+        json.append(",\"files\":").append(files.sum());
+        json.append(",\"failures\":").append(failures.sum());
+        json.append(",\"bytes\":").append(bytes.sum());
+        json.append(",\"filesPerSecond\":").append(String.format(Locale.ROOT, "%.1f", files.sum() / seconds));
+        json.append(",\"bytesPerSecond\":").append(String.format(Locale.ROOT, "%.1f", bytes.sum() / seconds));
+        json.append(",\"latencyMicrosHistogram\":{");
+        String separator = "";
+        for (int i = 0; i < BUCKETS; i++) {
+            final long count = histogram.get(i);
+            if (count != 0) {
+                json.append(separator).append("\"<").append(i == BUCKETS - 1 ? "inf" : Long.toString(1L << i)).append("\":").append(count);
+                separator = ",";
+            }
+        }
+        json.append("},\"slowest\":[");
+        final List<Slow> slow;
+        synchronized (slowest) {
+            slow = new ArrayList<>(slowest);
+        }
+        slow.sort(Comparator.comparingLong((Slow s) -> s.nanos).reversed());
+        separator = "";
+        for (final Slow s : slow) {
+            json.append(separator).append("{\"path\":");
+            quote(s.path, json);
+            json.append(",\"millis\":").append(String.format(Locale.ROOT, "%.3f", s.nanos / 1e6)).append('}');
+            separator = ",";
+        }
+        json.append("]}");
+        log.println(json);
+    }
+
+    private static void quote(final String s, final StringBuilder json) {
+        json.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    @Override
+    public void close() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+        }
+    }
+
+    private static final class Slow {
+        final String path;
+        final long nanos;
+
+        Slow(final String path, final long nanos) {
+            this.path = path;
+            this.nanos = nanos;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package info.kgeorgiy.ja.fadeev.walk;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Run settings of {@link Walk}. Command line options have form {@code --name} or {@code --name=value}
+ * and precede input and output file names.
+ */
+public class WalkOptions {
+    private static final int WINDOW_PER_THREAD = 64;
+    private static final long DEFAULT_TREE_CHUNK_SIZE = 16 << 20;
+    private static final long DEFAULT_LOCALITY_BATCH_BYTES = 64 << 20;
+    private static final long DEFAULT_METRICS_INTERVAL = 5;
+
+    private int threads = 1;
+    private int window = 0;
+    private ContentReader reader = new ChannelContentReader();
+    private boolean readStatistics = false;
+    private boolean recursive = false;
+    private Path cache = null;
+    private HashAlgorithm algorithm = null;
+    private boolean duplicates = false;
+    private boolean watch = false;
+    private long treeChunkSize = 0;
+    private int treeThreads = Runtime.getRuntime().availableProcessors();
+    private long localityBatchBytes = 0;
+    private long metricsInterval = -1;
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public WalkOptions setThreads(final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("number of threads should be positive: " + threads);
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Returns maximal number of hashed but not yet written results kept in memory.
+     */
+    public int getWindow() {
+        return window > 0 ? window : threads * WINDOW_PER_THREAD;
+    }
+
+    public WalkOptions setWindow(final int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("window should be positive: " + window);
+        }
+        this.window = window;
+        return this;
+    }
+
+    public ContentReader getReader() {
+        return reader;
+    }
+
+    public WalkOptions setReader(final ContentReader reader) {
+        this.reader = reader;
+        return this;
+    }
+
+    public boolean isReadStatistics() {
+        return readStatistics;
+    }
+
+    /**
+     * Enables report of read throughput by file size class to {@code System.err}.
+     */
+    public WalkOptions setReadStatistics(final boolean readStatistics) {
+        this.readStatistics = readStatistics;
+        return this;
+    }
+
+    public boolean isRecursive() {
+        return recursive;
+    }
+
+    /**
+     * Enables expansion of input directories into their files, which are hashed by {@link #getThreads()} workers
+     * while the tree is listed in parallel by as many fork/join workers.
+     */
+    public WalkOptions setRecursive(final boolean recursive) {
+        this.recursive = recursive;
+        return this;
+    }
+
+    public Path getCache() {
+        return cache;
+    }
+
+    /**
+     * Sets file of persistent hash cache, {@code null} disables caching.
+     * Unchanged files found in the cache are not read.
+     */
+    public WalkOptions setCache(final Path cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    /**
+     * Returns chosen hash algorithm. Defaults to {@link HashAlgorithm#PJW}, or to {@link HashAlgorithm#XXH64}
+     * in duplicates mode, as PJW hash is too weak to tell files apart.
+     */
+    public HashAlgorithm getAlgorithm() {
+        if (algorithm != null) {
+            return algorithm;
+        }
+        return duplicates ? HashAlgorithm.XXH64 : HashAlgorithm.PJW;
+    }
+
+    public WalkOptions setAlgorithm(final HashAlgorithm algorithm) {
+        this.algorithm = algorithm;
+        return this;
+    }
+
+    public boolean isDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Switches output to groups of identical files separated by empty lines.
+     */
+    public WalkOptions setDuplicates(final boolean duplicates) {
+        this.duplicates = duplicates;
+        return this;
+    }
+
+    public boolean isWatch() {
+        return watch;
+    }
+
+    /**
+     * Makes walk keep running after the initial pass, updating output as files change.
+     */
+    public WalkOptions setWatch(final boolean watch) {
+        this.watch = watch;
+        return this;
+    }
+
+    public long getTreeChunkSize() {
+        return treeChunkSize;
+    }
+
+    /**
+     * Enables tree hash mode with given chunk size, zero disables it.
+     * Chunks of a file are hashed in parallel and combined into a root hash.
+     */
+    public WalkOptions setTreeChunkSize(final long treeChunkSize) {
+        if (treeChunkSize < 0) {
+            throw new IllegalArgumentException("chunk size should be non-negative: " + treeChunkSize);
+        }
+        this.treeChunkSize = treeChunkSize;
+        return this;
+    }
+
+    public int getTreeThreads() {
+        return treeThreads;
+    }
+
+    public WalkOptions setTreeThreads(final int treeThreads) {
+        if (treeThreads < 1) {
+            throw new IllegalArgumentException("number of tree hash threads should be positive: " + treeThreads);
+        }
+        this.treeThreads = treeThreads;
+        return this;
+    }
+
+    /**
+     * Returns text written before each hash, which tells tree hashes apart from plain ones.
+     */
+    public String getHashPrefix() {
+        return treeChunkSize > 0 ? "tree-" + treeChunkSize + ":" : "";
+    }
+
+    public long getLocalityBatchBytes() {
+        return localityBatchBytes;
+    }
+
+    /**
+     * Enables reading input in batches of about {@code localityBatchBytes} bytes of heap,
+     * each hashed in order of directories and inodes. Zero keeps input order.
+     * Hashing of a batch overlaps with the tail of the previous one, which is held until written.
+     */
+    public WalkOptions setLocalityBatchBytes(final long localityBatchBytes) {
+        if (localityBatchBytes < 0) {
+            throw new IllegalArgumentException("batch size should be non-negative: " + localityBatchBytes);
+        }
+        this.localityBatchBytes = localityBatchBytes;
+        return this;
+    }
+
+    public long getMetricsInterval() {
+        return metricsInterval;
+    }
+
+    /**
+     * Enables metrics: progress is printed to {@code System.err} every {@code metricsInterval} seconds
+     * and a JSON summary at exit. Zero prints the summary only, negative value disables metrics.
+     */
+    public WalkOptions setMetricsInterval(final long metricsInterval) {
+        this.metricsInterval = metricsInterval;
+        return this;
+    }
+
+    /**
+     * Parses leading options of {@code args} into this instance.
+     *
+     * @return remaining positional arguments
+     * @throws IllegalArgumentException if an option is unknown or malformed
+     */
+    List<String> parse(final String[] args) {
+        final List<String> positional = new ArrayList<>();
+        for (final String arg : args) {
+            if (arg == null || !positional.isEmpty() || !arg.startsWith("--")) {
+                positional.add(arg);
+                continue;
+            }
+            final int eq = arg.indexOf('=');
+            final String name = eq < 0 ? arg.substring(2) : arg.substring(2, eq);
+            final String value = eq < 0 ? null : arg.substring(eq + 1);
+            parseOption(name, value);
+        }
+        if (watch && duplicates) {
+            throw new IllegalArgumentException("--watch cannot be combined with --duplicates");
+        }
+        return positional;
+    }
+
+    void parseOption(final String name, final String value) {
+        switch (name) {
+            case "parallel":
+                setThreads(value == null ? Runtime.getRuntime().availableProcessors() : parseInt(name, value));
+                break;
+            case "window":
+                setWindow(parseInt(name, value));
+                break;
+            case "reader":
+                setReader(parseReader(value));
+                break;
+            case "map-threshold":
+                setReader(new ChannelContentReader(parseLong(name, value)));
+                break;
+            case "recursive":
+                setRecursive(true);
+                break;
+            case "algorithm":
+                if (value == null) {
+                    throw new IllegalArgumentException("option --" + name + " requires a value");
+                }
+                setAlgorithm(HashAlgorithm.forName(value));
+                break;
+            case "duplicates":
+                setDuplicates(true);
+                break;
+            case "watch":
+                setWatch(true);
+                break;
+            case "tree-hash":
+                setTreeChunkSize(value == null ? DEFAULT_TREE_CHUNK_SIZE : parseLong(name, value));
+                break;
+            case "tree-threads":
+                setTreeThreads(parseInt(name, value));
+                break;
+            case "locality":
+                setLocalityBatchBytes(value == null ? DEFAULT_LOCALITY_BATCH_BYTES : parseLong(name, value));
+                break;
+            case "metrics":
+                setMetricsInterval(value == null ? DEFAULT_METRICS_INTERVAL : parseLong(name, value));
+                break;
+            case "cache":
+                setCache(parsePath(name, value));
+                break;
+            case "read-stats":
+                setReadStatistics(true);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown option --" + name);
+        }
+    }
+
+    private static ContentReader parseReader(final String value) {
+        if ("channel".equals(value)) {
+            return new ChannelContentReader();
+        } else if ("stream".equals(value)) {
+            return new StreamContentReader();
+        }
+        throw new IllegalArgumentException("option --reader expects channel or stream, provided " + value);
+    }
+
+    private static Path parsePath(final String name, final String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("option --" + name + " requires a value");
+        }
+        try {
+            return Path.of(value);
+        } catch (final InvalidPathException e) {
+            throw new IllegalArgumentException("option --" + name + " expects a path, provided " + value);
+        }
+    }
+
+    static int parseInt(final String name, final String value) {
+        final long number = parseLong(name, value);
+        if (number != (int) number) {
+            throw new IllegalArgumentException("option --" + name + " is out of range: " + value);
+        }
+        return (int) number;
+    }
+
+    static long parseLong(final String name, final String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("option --" + name + " requires a value");
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException("option --" + name + " expects a number, provided " + value);
+        }
+    }
+}
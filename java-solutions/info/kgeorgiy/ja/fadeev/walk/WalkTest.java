@@ -0,0 +1,182 @@
+package info.kgeorgiy.ja.fadeev.walk;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+@RunWith(JUnit4.class)
+public class WalkTest {
+    private static final Random random = new Random(3458245723L);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void inputOrderTest() throws IOException {
+        final Path in = input(500);
+        final String expected = expected(in);
+        for (final int threads : new int[]{1, 2, 4, 16}) {
+            for (final int window : new int[]{1, 3, 1000}) {
+                final Path out = folder.getRoot().toPath().resolve("out-" + threads + "-" + window + ".txt");
+                Walk.walk(in.toString(), out.toString(), new WalkOptions().setThreads(threads).setWindow(window));
+                Assert.assertEquals("threads " + threads + ", window " + window, expected, read(out));
+            }
+        }
+    }
+
+    @Test
+    public void parallelOverloadTest() throws IOException {
+        final Path in = input(100);
+        final Path out = folder.getRoot().toPath().resolve("out.txt");
+        Walk.walk(in.toString(), out.toString(), 8);
+        Assert.assertEquals(expected(in), read(out));
+    }
+
+    @Test
+    public void localityOrderTest() throws IOException {
+        final Path in = input(300);
+        final String expected = expected(in);
+        // Batches of a few lines, of about a hundred ones and a single batch
+        for (final long batchBytes : new long[]{1, 1000, 50_000, 1 << 26}) {
+            for (final int threads : new int[]{1, 4}) {
+                for (final int window : new int[]{1, 3, 1000}) {
+                    final String name = "batch " + batchBytes + ", threads " + threads + ", window " + window;
+                    final Path out = folder.getRoot().toPath().resolve("locality-" + name.replaceAll("\\W+", "-") + ".txt");
+                    Walk.walk(in.toString(), out.toString(),
+                            new WalkOptions().setLocalityBatchBytes(batchBytes).setThreads(threads).setWindow(window));
+                    Assert.assertEquals(name, expected, read(out));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void recursiveTest() throws IOException {
+        final Path root = folder.newFolder("tree").toPath();
+        tree(root, 3);
+        final Path in = folder.getRoot().toPath().resolve("recursive.txt");
+        Files.write(in, List.of(root.toString(), root.resolve("d0").toString(), "invalid\0path"), StandardCharsets.UTF_8);
+        final String expected = expectedRecursive(in);
+        for (final int threads : new int[]{1, 2, 8}) {
+            final Path out = folder.getRoot().toPath().resolve("recursive-" + threads + ".txt");
+            Walk.walk(in.toString(), out.toString(), new WalkOptions().setRecursive(true).setThreads(threads).setWindow(3));
+            Assert.assertEquals("threads " + threads, expected, read(out));
+        }
+    }
+
+    @Test
+    public void unreadableDirectoryTest() throws IOException {
+        final Path root = folder.newFolder("locked-tree").toPath();
+        tree(root, 2);
+        final Path locked = root.resolve("d0");
+        Assert.assertTrue(locked.toFile().setReadable(false));
+        try {
+            // Permissions do not apply to a superuser
+            Assume.assumeFalse(Files.isReadable(locked));
+            final Path in = folder.getRoot().toPath().resolve("locked.txt");
+            Files.write(in, List.of(root.toString()), StandardCharsets.UTF_8);
+            final String expected = expectedRecursive(in);
+            Assert.assertTrue(expected.contains(String.format("%016x %s%n", 0, locked)));
+            for (final int threads : new int[]{1, 4}) {
+                final Path out = folder.getRoot().toPath().resolve("locked-" + threads + ".txt");
+                Walk.walk(in.toString(), out.toString(), new WalkOptions().setRecursive(true).setThreads(threads));
+                Assert.assertEquals("threads " + threads, expected, read(out));
+            }
+        } finally {
+            locked.toFile().setReadable(true);
+        }
+    }
+
+    // Random files and subdirectories, both empty and not
+    private static void tree(final Path directory, final int depth) throws IOException {
+        for (int i = random.nextInt(40); i > 0; i--) {
+            final byte[] content = new byte[random.nextInt(1 << 12)];
+            random.nextBytes(content);
+            Files.write(directory.resolve("f" + i), content);
+        }
+        if (depth > 0) {
+            for (int i = 0; i < 4; i++) {
+                tree(Files.createDirectory(directory.resolve("d" + i)), depth - 1);
+            }
+        }
+    }
+
+    // Directories expand into their files in listing order, a directory that cannot be listed has a zero hash
+    private static String expectedRecursive(final Path in) throws IOException {
+        final StringBuilder expected = new StringBuilder();
+        for (final String line : Files.readAllLines(in, StandardCharsets.UTF_8)) {
+            if (line.indexOf('\0') < 0 && Files.isDirectory(Path.of(line))) {
+                expand(Path.of(line), expected);
+            } else {
+                final long hash = line.indexOf('\0') >= 0 ? 0 : Walk.calculateHash(Path.of(line));
+                expected.append(String.format("%016x %s%n", hash, line));
+            }
+        }
+        return expected.toString();
+    }
+
+    private static void expand(final Path directory, final StringBuilder expected) {
+        try (final DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (final Path entry : stream) {
+                if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                    expand(entry, expected);
+                } else {
+                    expected.append(String.format("%016x %s%n", Walk.calculateHash(entry), entry));
+                }
+            }
+        } catch (final IOException e) {
+            expected.append(String.format("%016x %s%n", 0, directory));
+        }
+    }
+
+    // Files of random sizes, some of them repeated, with missing files and invalid paths between them
+    private Path input(final int files) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        for (int i = 0; i < files; i++) {
+            final Path file = folder.newFile("file" + i).toPath();
+            final byte[] content = new byte[random.nextInt(i % 50 == 0 ? 1 << 20 : 1 << 10)];
+            random.nextBytes(content);
+            Files.write(file, content);
+            lines.add(file.toString());
+            if (i % 7 == 0) {
+                lines.add(folder.getRoot().toPath().resolve("missing" + i).toString());
+            }
+            if (i % 11 == 0) {
+                lines.add(lines.get(random.nextInt(lines.size())));
+            }
+            if (i % 13 == 0) {
+                lines.add("invalid\0path");
+            }
+        }
+        final Path in = folder.getRoot().toPath().resolve("input.txt");
+        Files.write(in, lines, StandardCharsets.UTF_8);
+        return in;
+    }
+
+    private static String expected(final Path in) throws IOException {
+        final StringBuilder expected = new StringBuilder();
+        for (final String line : Files.readAllLines(in, StandardCharsets.UTF_8)) {
+            final long hash = line.indexOf('\0') >= 0 ? 0 : Walk.calculateHash(Path.of(line));
+            expected.append(String.format("%016x %s%n", hash, line));
+        }
+        return expected.toString();
+    }
+
+    private static String read(final Path out) throws IOException {
+        return Files.readString(out, StandardCharsets.UTF_8);
+    }
+}
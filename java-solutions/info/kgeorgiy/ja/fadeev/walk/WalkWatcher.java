@@ -0,0 +1,236 @@
+package info.kgeorgiy.ja.fadeev.walk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps output of a finished walk up to date using {@link WatchService}.
+ * <p>
+ * Offsets of hash fields are remembered during the initial pass, so a changed file is re-hashed
+ * and its hash is overwritten in place: hash width does not depend on contents.
+ * Files created inside walked trees are appended with paths based on the tree root as written in the input.
+ * The output file itself is never hashed, even if it lies in a watched tree, as each update would change it again.
+ * Events are coalesced per path and a batch is processed once no events arrive
+ * for {@value #QUIET_MILLIS} ms, or after {@value #MAX_DELAY_MILLIS} ms.
+ */
+class WalkWatcher implements Closeable {
+    private static final long QUIET_MILLIS = 200;
+    private static final long MAX_DELAY_MILLIS = 2000;
+
+    private final Path output;
+    private final EntryHasher hasher;
+    private final String prefix;
+    private final PrintStream log;
+    private final WatchService service;
+    private final Map<WatchKey, Path> keys = new HashMap<>();
+    private final Set<Path> watched = new HashSet<>();
+    // Directories of watched trees to their paths as written in the input
+    private final Map<Path, Path> trees = new HashMap<>();
+    private final Map<Path, List<Long>> offsets = new HashMap<>();
+
+    private final long start = System.nanoTime();
+    private final LongAdder events = new LongAdder();
+    private final LongAdder rehashed = new LongAdder();
+    private volatile long lastLatency;
+
+    WalkWatcher(final Path output, final EntryHasher hasher, final String prefix, final PrintStream log) throws IOException {
+        this.output = normalize(output);
+        this.hasher = hasher;
+        this.prefix = prefix;
+        this.log = log;
+        this.service = output.getFileSystem().newWatchService();
+    }
+
+    /**
+     * Remembers that line of {@code path} starts at {@code offset} of the output.
+     */
+    void index(final String path, final long offset) {
+        try {
+            offsets.computeIfAbsent(normalize(Path.of(path)), file -> new ArrayList<>()).add(offset + prefix.length());
+        } catch (final InvalidPathException ignored) {
+        }
+    }
+
+    /**
+     * Watches all directories of a tree, files created there are added to output.
+     */
+    void watchTree(final Path root) throws IOException {
+        final Path normalized = normalize(root);
+        Files.walkFileTree(normalized, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attributes) throws IOException {
+                register(dir);
+                trees.putIfAbsent(dir, root.resolve(normalized.relativize(dir)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(final Path file, final IOException e) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static Path normalize(final Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+    // Path as written in the input of a directory of a watched tree or of an entry of such a directory
+    private Path written(final Path path) {
+        final Path dir = trees.get(path);
+        if (dir != null) {
+            return dir;
+        }
+        final Path parent = trees.get(path.getParent());
+        return parent != null ? parent.resolve(path.getFileName()) : path;
+    }
+
+    private void register(final Path dir) throws IOException {
+        if (watched.add(dir)) {
+            keys.put(dir.register(service,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE), dir);
+        }
+    }
+
+    /**
+     * Processes events until interrupted.
+     */
+    void run() throws IOException, InterruptedException {
+        for (final Path file : offsets.keySet()) {
+            final Path parent = file.getParent();
+            if (parent != null && Files.isDirectory(parent)) {
+                register(parent);
+            }
+        }
+        try (final FileChannel channel = FileChannel.open(output, StandardOpenOption.WRITE)) {
+            while (!Thread.currentThread().isInterrupted()) {
+                final Set<Path> changed = new LinkedHashSet<>();
+                collect(service.take(), changed);
+                final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_DELAY_MILLIS);
+                WatchKey key;
+                while (System.nanoTime() < deadline
+                        && (key = service.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    collect(key, changed);
+                }
+                update(channel, changed);
+            }
+        }
+    }
+
+    private void collect(final WatchKey key, final Set<Path> changed) {
+        final Path dir = keys.get(key);
+        for (final WatchEvent<?> event : key.pollEvents()) {
+            events.increment();
+            if (dir == null) {
+                continue;
+            }
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                for (final Path file : offsets.keySet()) {
+                    if (dir.equals(file.getParent())) {
+                        changed.add(file);
+                    }
+                }
+                if (trees.containsKey(dir)) {
+                    changed.add(dir);
+                }
+            } else {
+                changed.add(dir.resolve((Path) event.context()));
+            }
+        }
+        if (!key.reset()) {
+            keys.remove(key);
+            watched.remove(dir);
+        }
+    }
+
+    private void update(final FileChannel channel, final Set<Path> changed) throws IOException {
+        final long batchStart = System.nanoTime();
+        int count = 0;
+        for (final Path path : changed) {
+            if (path.equals(output)) {
+                continue;
+            }
+            if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                if (trees.containsKey(path.getParent()) || trees.containsKey(path)) {
+                    count += addTree(channel, path);
+                }
+            } else if (offsets.containsKey(path)) {
+                final byte[] hash = hasher.hashFile(path).hash;
+                final byte[] hex = new byte[hash.length * 2];
+                ResultWriter.hex(hash, hex, 0);
+                for (final long offset : offsets.get(path)) {
+                    channel.write(ByteBuffer.wrap(hex), offset);
+                }
+                count++;
+            } else if (trees.containsKey(path.getParent()) && Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+                append(channel, path);
+                count++;
+            }
+        }
+        lastLatency = System.nanoTime() - batchStart;
+        rehashed.add(count);
+        print();
+    }
+
+    private int addTree(final FileChannel channel, final Path root) throws IOException {
+        watchTree(written(root));
+        final int[] count = {0};
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) throws IOException {
+                if (!offsets.containsKey(file) && !file.equals(output)) {
+                    append(channel, file);
+                    count[0]++;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(final Path file, final IOException e) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return count[0];
+    }
+
+    private void append(final FileChannel channel, final Path file) throws IOException {
+        final byte[] hash = hasher.hashFile(file).hash;
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final ResultWriter writer = new ResultWriter(bytes, prefix)) {
+            writer.write(hash, written(file).toString());
+        }
+        final long offset = channel.size();
+        channel.write(ByteBuffer.wrap(bytes.toByteArray()), offset);
+        offsets.computeIfAbsent(file, f -> new ArrayList<>()).add(offset + prefix.length());
+    }
+
+    long getEvents() {
+        return events.sum();
+    }
+
+    double getEventsPerSecond() {
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        return seconds > 0 ? getEvents() / seconds : 0;
+    }
+
+    private void print() {
+        log.printf("Watch: %d events (%.1f/s), %d files re-hashed, last batch took %.1f ms%n",
+                getEvents(), getEventsPerSecond(), rehashed.sum(), lastLatency / 1e6);
+    }
+
+    @Override
+    public void close() throws IOException {
+        service.close();
+    }
+}
@@ -0,0 +1,161 @@
+package info.kgeorgiy.ja.fadeev.walk;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@RunWith(JUnit4.class)
+public class WalkWatcherTest {
+    private static final long TIMEOUT_MILLIS = 10_000;
+    private static final Pattern BATCH = Pattern.compile("Watch: (\\d+) events .*, (\\d+) files re-hashed");
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test(timeout = 30_000)
+    public void rewriteInPlaceTest() throws IOException, InterruptedException {
+        final Path dir = folder.newFolder("files").toPath();
+        final Path small = Files.writeString(dir.resolve("small"), "a");
+        final Path large = Files.writeString(dir.resolve("large"), "b".repeat(100_000));
+        final Path kept = Files.writeString(dir.resolve("kept"), "c");
+        // Changed file listed twice is rewritten at both offsets
+        final Path in = input(small, large, kept, small);
+        final Path out = walk(in, "out.txt");
+        final ByteArrayOutputStream log = new ByteArrayOutputStream();
+        final Watch watch = new Watch(out, log);
+        try {
+            Thread.sleep(500);
+            Files.writeString(small, "changed to a longer content");
+            Files.writeString(large, "");
+            awaitOutput(in, out, log);
+        } finally {
+            watch.stop();
+        }
+        Assert.assertEquals(4, Files.readAllLines(out, StandardCharsets.UTF_8).size());
+    }
+
+    @Test(timeout = 30_000)
+    public void debounceTest() throws IOException, InterruptedException {
+        final Path dir = folder.newFolder("files").toPath();
+        final Path file = Files.writeString(dir.resolve("file"), "0");
+        final Path in = input(file);
+        final Path out = walk(in, "out.txt");
+        final ByteArrayOutputStream log = new ByteArrayOutputStream();
+        final int writes = 20;
+        final Watch watch = new Watch(out, log);
+        try {
+            Thread.sleep(500);
+            // Writes are much closer than the quiet period, so they are coalesced
+            for (int i = 1; i <= writes; i++) {
+                Files.writeString(file, Integer.toString(i));
+                Thread.sleep(10);
+            }
+            awaitOutput(in, out, log);
+        } finally {
+            watch.stop();
+        }
+        final List<MatchResult> batches = batches(log);
+        final MatchResult last = batches.get(batches.size() - 1);
+        Assert.assertTrue(log.toString(), batches.size() < writes);
+        Assert.assertTrue(log.toString(), Long.parseLong(last.group(1)) >= writes);
+        Assert.assertEquals(log.toString(), batches.size(), Integer.parseInt(last.group(2)));
+    }
+
+    // Watcher of output running in a thread until stopped
+    private static final class Watch {
+        private final WalkWatcher watcher;
+        private final Thread thread;
+
+        Watch(final Path out, final ByteArrayOutputStream log) throws IOException {
+            final EntryHasher hasher = new EntryHasher(new WalkOptions(), new StreamContentReader(), null, null);
+            watcher = new WalkWatcher(out, hasher, "", new PrintStream(log, true, StandardCharsets.UTF_8));
+            index(watcher, out);
+            thread = new Thread(() -> {
+                try {
+                    watcher.run();
+                } catch (final InterruptedException ignored) {
+                } catch (final IOException e) {
+                    throw new AssertionError(e);
+                }
+            });
+            thread.start();
+        }
+
+        void stop() throws IOException, InterruptedException {
+            thread.interrupt();
+            thread.join();
+            watcher.close();
+        }
+    }
+
+    // Indexes lines of output as they are indexed while written
+    private static void index(final WalkWatcher watcher, final Path out) throws IOException {
+        final byte[] bytes = Files.readAllBytes(out);
+        for (int start = 0; start < bytes.length; ) {
+            int end = start;
+            while (bytes[end] != '\n') {
+                end++;
+            }
+            final String line = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+            watcher.index(line.substring(line.indexOf(' ') + 1), start);
+            start = end + 1;
+        }
+    }
+
+    // Waits until output equals the one of a fresh walk and a batch was reported
+    private void awaitOutput(final Path in, final Path out, final ByteArrayOutputStream log)
+            throws IOException, InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        String expected;
+        do {
+            Thread.sleep(100);
+            expected = read(walk(in, "expected.txt"));
+            if (expected.equals(read(out)) && !batches(log).isEmpty()) {
+                return;
+            }
+        } while (System.currentTimeMillis() < deadline);
+        Assert.assertEquals(log.toString(), expected, read(out));
+    }
+
+    private static List<MatchResult> batches(final ByteArrayOutputStream log) {
+        final List<MatchResult> batches = new ArrayList<>();
+        final Matcher matcher = BATCH.matcher(log.toString(StandardCharsets.UTF_8));
+        while (matcher.find()) {
+            batches.add(matcher.toMatchResult());
+        }
+        return batches;
+    }
+
+    private Path input(final Path... files) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        for (final Path file : files) {
+            lines.add(file.toString());
+        }
+        return Files.write(folder.getRoot().toPath().resolve("input.txt"), lines, StandardCharsets.UTF_8);
+    }
+
+    private Path walk(final Path in, final String name) {
+        final Path out = folder.getRoot().toPath().resolve(name);
+        Walk.walk(in.toString(), out.toString());
+        return out;
+    }
+
+    private static String read(final Path file) throws IOException {
+        return Files.readString(file, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,108 @@
+package info.kgeorgiy.ja.fadeev.walk;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Streaming xxHash64 with zero seed. Input is consumed in 32-byte stripes of four 64-bit lanes.
+ */
+class XxHash64 implements Hasher {
+    private static final long P1 = 0x9E3779B185EBCA87L;
+    private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long P3 = 0x165667B19E3779F9L;
+    private static final long P4 = 0x85EBCA77C2B2AE63L;
+    private static final long P5 = 0x27D4EB2F165667C5L;
+    private static final int STRIPE = 32;
+
+    private long v1 = P1 + P2;
+    private long v2 = P2;
+    private long v3 = 0;
+    private long v4 = -P1;
+    private long total;
+    private final ByteBuffer tail = ByteBuffer.allocate(STRIPE).order(ByteOrder.LITTLE_ENDIAN);
+
+    @Override
+    public void update(final ByteBuffer buffer) {
+        total += buffer.remaining();
+        if (tail.position() > 0) {
+            while (tail.hasRemaining() && buffer.hasRemaining()) {
+                tail.put(buffer.get());
+            }
+            if (tail.hasRemaining()) {
+                return;
+            }
+            stripes(tail.flip());
+            tail.clear();
+        }
+        stripes(buffer);
+        tail.put(buffer);
+    }
+
+    private void stripes(final ByteBuffer buffer) {
+        final boolean little = buffer.order() == ByteOrder.LITTLE_ENDIAN;
+        long a = v1, b = v2, c = v3, d = v4;
+        int i = buffer.position();
+        for (final int limit = buffer.limit() - STRIPE; i <= limit; i += STRIPE) {
+            a = round(a, lane(buffer, i, little));
+            b = round(b, lane(buffer, i + 8, little));
+            c = round(c, lane(buffer, i + 16, little));
+            d = round(d, lane(buffer, i + 24, little));
+        }
+        buffer.position(i);
+        v1 = a;
+        v2 = b;
+        v3 = c;
+        v4 = d;
+    }
+
+    private static long lane(final ByteBuffer buffer, final int index, final boolean little) {
+        final long value = buffer.getLong(index);
+        return little ? value : Long.reverseBytes(value);
+    }
+
+    private static long round(final long acc, final long lane) {
+        return Long.rotateLeft(acc + lane * P2, 31) * P1;
+    }
+
+    private static long merge(final long hash, final long acc) {
+        return (hash ^ round(0, acc)) * P1 + P4;
+    }
+
+    @Override
+    public byte[] digest() {
+        long h;
+        if (total >= STRIPE) {
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h = merge(h, v1);
+            h = merge(h, v2);
+            h = merge(h, v3);
+            h = merge(h, v4);
+        } else {
+            h = P5;
+        }
+        h += total;
+
+        final int size = tail.position();
+        int i = 0;
+        for (; i + 8 <= size; i += 8) {
+            h ^= round(0, tail.getLong(i));
+            h = Long.rotateLeft(h, 27) * P1 + P4;
+        }
+        if (i + 4 <= size) {
+            h ^= (tail.getInt(i) & 0xFFFF_FFFFL) * P1;
+            h = Long.rotateLeft(h, 23) * P2 + P3;
+            i += 4;
+        }
+        for (; i < size; i++) {
+            h ^= (tail.get(i) & 0xFF) * P5;
+            h = Long.rotateLeft(h, 11) * P1;
+        }
+
+        h ^= h >>> 33;
+        h *= P2;
+        h ^= h >>> 29;
+        h *= P3;
+        h ^= h >>> 32;
+        return ByteBuffer.allocate(Long.BYTES).putLong(h).array();
+    }
+}